@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.bench;
+
+import com.base.engine.core.Matrix4f;
+import com.base.engine.core.Quaternion;
+import com.base.engine.core.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MathBenchmark
+{
+	private Matrix4f   m_a;
+	private Matrix4f   m_b;
+	private Matrix4f   m_dest;
+	private Quaternion m_from;
+	private Quaternion m_to;
+	private Quaternion m_quaternionDest;
+	private Vector3f   m_vector;
+	private Vector3f   m_vectorDest;
+
+	@Setup
+	public void Setup()
+	{
+		m_from = new Quaternion(new Vector3f(0, 1, 0), 0.3f);
+		m_to = new Quaternion(new Vector3f(1, 0, 0), 1.2f);
+		m_quaternionDest = new Quaternion(0, 0, 0, 1);
+
+		m_a = new Matrix4f().InitTRS(new Vector3f(1, 2, 3), m_from, new Vector3f(1, 1, 1));
+		m_b = new Matrix4f().InitTRS(new Vector3f(-3, 0, 5), m_to, new Vector3f(2, 2, 2));
+		m_dest = new Matrix4f();
+
+		m_vector = new Vector3f(0.5f, -1.0f, 2.0f);
+		m_vectorDest = new Vector3f(0, 0, 0);
+	}
+
+	@Benchmark
+	public Matrix4f MatrixMul()
+	{
+		return m_a.Mul(m_b);
+	}
+
+	@Benchmark
+	public Matrix4f MatrixMulInto()
+	{
+		return Matrix4f.MulInto(m_a, m_b, m_dest);
+	}
+
+	@Benchmark
+	public Matrix4f MatrixMulAffine()
+	{
+		return Matrix4f.MulAffine(m_a, m_b, m_dest);
+	}
+
+	@Benchmark
+	public Matrix4f QuaternionToRotationMatrix()
+	{
+		return m_from.ToRotationMatrix();
+	}
+
+	@Benchmark
+	public Matrix4f QuaternionToRotationMatrixInto()
+	{
+		return m_from.ToRotationMatrix(m_dest);
+	}
+
+	@Benchmark
+	public Quaternion QuaternionNLerp()
+	{
+		return m_from.NLerp(m_to, 0.35f, true);
+	}
+
+	@Benchmark
+	public Quaternion QuaternionNLerpInto()
+	{
+		return m_from.NLerp(m_to, 0.35f, true, m_quaternionDest);
+	}
+
+	@Benchmark
+	public Quaternion QuaternionSLerp()
+	{
+		return m_from.SLerp(m_to, 0.35f, true);
+	}
+
+	@Benchmark
+	public Vector3f VectorRotate()
+	{
+		return m_vector.Rotate(m_from);
+	}
+
+	@Benchmark
+	public Vector3f VectorRotateInto()
+	{
+		return m_vector.Rotate(m_from, m_vectorDest);
+	}
+}
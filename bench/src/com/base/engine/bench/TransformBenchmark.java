@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.bench;
+
+import com.base.engine.core.Matrix4f;
+import com.base.engine.core.Transform;
+import com.base.engine.core.TransformStore;
+import com.base.engine.core.Vector3f;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+//A chain of `depth` transforms with `width` leaves hanging off the deepest one. Each benchmark flushes the store, as
+//the engine does once per tick, then reads the world matrix of every leaf, so results are per whole-hierarchy read.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark
+{
+	@Param({"1", "8", "32"})
+	public int m_depth;
+
+	@Param({"16", "1024", "16384"})
+	public int m_width;
+
+	private TransformStore m_store;
+	private Transform      m_root;
+	private Transform[]    m_leaves;
+	private Vector3f       m_offset;
+	private Matrix4f       m_world;
+
+	@Setup
+	public void Setup()
+	{
+		TransformStore store = new TransformStore();
+
+		m_store = store;
+		m_world = new Matrix4f();
+		m_root = new Transform(store);
+		Transform parent = m_root;
+
+		for(int i = 1; i < m_depth; i++)
+		{
+			Transform child = new Transform(store);
+			child.SetParent(parent);
+			child.GetPos().Set(0, 1, 0);
+			child.Rotate(new Vector3f(0, 1, 0), 0.1f);
+			parent = child;
+		}
+
+		m_leaves = new Transform[m_width];
+
+		for(int i = 0; i < m_width; i++)
+		{
+			m_leaves[i] = new Transform(store);
+			m_leaves[i].SetParent(parent);
+			m_leaves[i].GetPos().Set(i, 0, 0);
+		}
+
+		m_offset = new Vector3f(0.001f, 0, 0);
+		ReadLeaves(null);
+	}
+
+	private void ReadLeaves(Blackhole blackhole)
+	{
+		m_store.Update();
+
+		for(int i = 0; i < m_leaves.length; i++)
+		{
+			Matrix4f world = m_leaves[i].GetTransformation(m_world);
+
+			if(blackhole != null)
+				blackhole.consume(world.Get(3, 0));
+		}
+	}
+
+	@Benchmark
+	public void Unchanged(Blackhole blackhole)
+	{
+		ReadLeaves(blackhole);
+	}
+
+	@Benchmark
+	public void RootMoved(Blackhole blackhole)
+	{
+		m_root.GetPos().AddLocal(m_offset);
+		ReadLeaves(blackhole);
+	}
+
+	@Benchmark
+	public void OneLeafMoved(Blackhole blackhole)
+	{
+		m_leaves[m_leaves.length / 2].GetPos().AddLocal(m_offset);
+		ReadLeaves(blackhole);
+	}
+}
@@ -18,6 +18,7 @@ package com.base.engine.components;
 
 import com.base.engine.core.CoreEngine;
 import com.base.engine.core.Vector3f;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.Shader;
 
 public class BaseLight extends GameComponent
@@ -35,7 +36,22 @@ public class BaseLight extends GameComponent
 	@Override
 	public void AddToEngine(CoreEngine engine)
 	{
-		engine.GetRenderingEngine().AddLight(this);
+		//Headless engines have no rendering engine
+		if(engine.GetRenderingEngine() != null)
+			engine.GetRenderingEngine().AddLight(this);
+	}
+
+	@Override
+	public void RemoveFromEngine(CoreEngine engine)
+	{
+		if(engine.GetRenderingEngine() != null)
+			engine.GetRenderingEngine().RemoveLight(this);
+	}
+
+	//Copies the parameters the light's shader reads, for threaded rendering
+	public void StoreState(RenderSnapshot.Light dest)
+	{
+		dest.SetBase(m_shader, m_color, m_intensity);
 	}
 
 	public void SetShader(Shader shader)
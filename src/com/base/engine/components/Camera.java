@@ -20,26 +20,124 @@ import com.base.engine.core.*;
 
 public class Camera extends GameComponent
 {
+	private static final Vector3f UNIT_SCALE = new Vector3f(1,1,1);
+
 	private Matrix4f m_projection;
+	private Matrix4f m_view;
+	private Matrix4f m_viewProjection;
+	private Matrix4f m_inverseView;
+	private Frustum  m_frustum;
+
+	private boolean  m_matricesValid;
+	private int      m_transformVersion;
 
 	public Camera(Matrix4f projection)
 	{
-		this.m_projection = projection;
+		this.m_projection = new Matrix4f().Set(projection);
+		this.m_view = new Matrix4f().InitIdentity();
+		this.m_viewProjection = new Matrix4f().InitIdentity();
+		this.m_inverseView = new Matrix4f().InitIdentity();
+		this.m_frustum = new Frustum();
+		this.m_matricesValid = false;
+	}
+
+	//Rebuilds the cached matrices only when the camera's world transform or projection changed since the last call
+	private void UpdateMatrices()
+	{
+		int version = GetTransform().GetWorldVersion();
+
+		if(m_matricesValid && version == m_transformVersion)
+			return;
+
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+
+		Vector3f pos = GetTransform().GetTransformedPos(scratch.NextVector3f());
+		Quaternion rot = GetTransform().GetTransformedRot(scratch.NextQuaternion());
+
+		m_inverseView.InitTRS(pos, rot, UNIT_SCALE);
+		m_inverseView.InvertRigid(m_view);
+		Matrix4f.MulInto(m_projection, m_view, m_viewProjection);
+		m_frustum.InitFromMatrix(m_viewProjection);
+
+		scratch.Pop();
+
+		m_transformVersion = version;
+		m_matricesValid = true;
 	}
 
+	//The returned matrices are cached and shared; copy them before modifying
 	public Matrix4f GetViewProjection()
 	{
-		Matrix4f cameraRotation = GetTransform().GetTransformedRot().Conjugate().ToRotationMatrix();
-		Vector3f cameraPos = GetTransform().GetTransformedPos().Mul(-1);
+		UpdateMatrices();
+
+		return m_viewProjection;
+	}
+
+	//The view-projection from the camera's transform interpolated alpha of the way from the previous tick
+	public Matrix4f GetViewProjection(float alpha, Matrix4f dest)
+	{
+		if(alpha >= 1)
+			return dest.Set(GetViewProjection());
 
-		Matrix4f cameraTranslation = new Matrix4f().InitTranslation(cameraPos.GetX(), cameraPos.GetY(), cameraPos.GetZ());
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
 
-		return m_projection.Mul(cameraRotation.Mul(cameraTranslation));
+		Vector3f pos = GetTransform().GetInterpolatedPos(alpha, scratch.NextVector3f());
+		Quaternion rot = GetTransform().GetInterpolatedRot(alpha, scratch.NextQuaternion());
+		Matrix4f view = scratch.NextMatrix4f().InitTRS(pos, rot, UNIT_SCALE).InvertRigid(scratch.NextMatrix4f());
+		Matrix4f.MulInto(m_projection, view, dest);
+
+		scratch.Pop();
+
+		return dest;
+	}
+
+	public Matrix4f GetView()
+	{
+		UpdateMatrices();
+
+		return m_view;
+	}
+
+	public Matrix4f GetInverseView()
+	{
+		UpdateMatrices();
+
+		return m_inverseView;
+	}
+
+	//World-space frustum planes of the current view-projection
+	public Frustum GetFrustum()
+	{
+		UpdateMatrices();
+
+		return m_frustum;
+	}
+
+	public Matrix4f GetProjection()
+	{
+		return m_projection;
+	}
+
+	public void SetProjection(Matrix4f projection)
+	{
+		m_projection.Set(projection);
+		m_matricesValid = false;
 	}
 
 	@Override
 	public void AddToEngine(CoreEngine engine)
 	{
-		engine.GetRenderingEngine().AddCamera(this);
+		//Headless engines have no rendering engine
+		if(engine.GetRenderingEngine() != null)
+			engine.GetRenderingEngine().AddCamera(this);
+	}
+
+	@Override
+	public void RemoveFromEngine(CoreEngine engine)
+	{
+		if(engine.GetRenderingEngine() != null)
+			engine.GetRenderingEngine().RemoveCamera(this);
 	}
 }
@@ -16,7 +16,9 @@
 
 package com.base.engine.components;
 
+import com.base.engine.core.ScratchPool;
 import com.base.engine.core.Vector3f;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.Shader;
 
 public class DirectionalLight extends BaseLight
@@ -32,4 +34,15 @@ public class DirectionalLight extends BaseLight
 	{
 		return GetTransform().GetTransformedRot().GetForward();
 	}
+
+	@Override
+	public void StoreState(RenderSnapshot.Light dest)
+	{
+		super.StoreState(dest);
+
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+		dest.SetDirection(GetTransform().GetTransformedRot(scratch.NextQuaternion()).GetForward(scratch.NextVector3f()));
+		scratch.Pop();
+	}
 }
@@ -73,4 +73,7 @@ public class FreeLook extends GameComponent
 				Input.SetMousePosition(centerPosition);
 		}
 	}
+
+	public float GetSensitivity()  { return m_sensitivity; }
+	public int GetUnlockMouseKey() { return m_unlockMouseKey; }
 }
@@ -17,6 +17,8 @@
 package com.base.engine.components;
 
 import com.base.engine.core.Input;
+import com.base.engine.core.Quaternion;
+import com.base.engine.core.ScratchPool;
 import com.base.engine.core.Vector3f;
 
 public class FreeMove extends GameComponent
@@ -45,19 +47,32 @@ public class FreeMove extends GameComponent
 	public void Input(float delta)
 	{
 		float movAmt = m_speed * delta;
+		Quaternion rot = GetTransform().GetRot();
+
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+		Vector3f dir = scratch.NextVector3f();
 
 		if(Input.GetKey(m_forwardKey))
-			Move(GetTransform().GetRot().GetForward(), movAmt);
+			Move(rot.GetForward(dir), movAmt);
 		if(Input.GetKey(m_backKey))
-			Move(GetTransform().GetRot().GetForward(), -movAmt);
+			Move(rot.GetForward(dir), -movAmt);
 		if(Input.GetKey(m_leftKey))
-			Move(GetTransform().GetRot().GetLeft(), movAmt);
+			Move(rot.GetLeft(dir), movAmt);
 		if(Input.GetKey(m_rightKey))
-			Move(GetTransform().GetRot().GetRight(), movAmt);
+			Move(rot.GetRight(dir), movAmt);
+
+		scratch.Pop();
 	}
 
 	private void Move(Vector3f dir, float amt)
 	{
-		GetTransform().SetPos(GetTransform().GetPos().Add(dir.Mul(amt)));
+		GetTransform().GetPos().AddLocal(dir.MulLocal(amt));
 	}
+
+	public float GetSpeed()    { return m_speed; }
+	public int GetForwardKey() { return m_forwardKey; }
+	public int GetBackKey()    { return m_backKey; }
+	public int GetLeftKey()    { return m_leftKey; }
+	public int GetRightKey()   { return m_rightKey; }
 }
@@ -18,18 +18,96 @@ package com.base.engine.components;
 
 import com.base.engine.core.CoreEngine;
 import com.base.engine.core.GameObject;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.RenderingEngine;
 import com.base.engine.core.Transform;
 import com.base.engine.rendering.Shader;
 
 public abstract class GameComponent
 {
+	public static final int UPDATE_MAIN_THREAD = 0;
+	public static final int UPDATE_PARALLEL    = 1;
+
 	private GameObject m_parent;
 
+	//Update scheduling state, kept here so it survives the scene's flattened lists being rebuilt
+	private int              m_tickInterval   = 1;
+	private boolean          m_updateLOD      = false;
+	private int              m_lodMultiplier  = 1;
+	private int              m_tickPhase      = -1;
+	private long             m_lastUpdateTick = -1;
+	private volatile boolean m_dormant        = false;
+
 	public void Input(float delta) {}
 	public void Update(float delta) {}
 	public void Render(Shader shader, RenderingEngine renderingEngine) {}
 
+	//Threaded rendering's counterpart of Render: runs on the simulation thread and copies what the render thread
+	//should draw into snapshot. Render components that don't override this are not drawn in that mode.
+	public void Snapshot(RenderSnapshot snapshot, RenderingEngine renderingEngine) {}
+
+	//With parallel update enabled, UPDATE_PARALLEL components may run Update on a worker thread. They may then write
+	//only what GetUpdateWriteSet() names, and read other transforms' world state, which is held as flushed before the
+	//parallel pass started; changing the hierarchy must stay on the main thread.
+	public int GetUpdateMode()
+	{
+		return UPDATE_MAIN_THREAD;
+	}
+
+	//Parallel components sharing a write set run one after another in traversal order. Defaults to the owning object.
+	public Object GetUpdateWriteSet()
+	{
+		return m_parent;
+	}
+
+	//Update runs every interval ticks, with delta covering all of them. Components sharing an interval are
+	//spread evenly across its ticks; set it before adding the component, as the spread is assigned on registration.
+	public void SetTickInterval(int interval)
+	{
+		interval = Math.max(1, interval);
+
+		//A phase picked for another interval would bunch up with the rest; the next registration picks a new one
+		if(interval != m_tickInterval)
+			this.m_tickPhase = -1;
+
+		this.m_tickInterval = interval;
+	}
+
+	//Lets the engine update this less often the further it is from the main camera; see UpdateScheduler
+	public void SetUpdateLOD(boolean updateLOD)
+	{
+		this.m_updateLOD = updateLOD;
+		this.m_lodMultiplier = 1;
+	}
+
+	//A dormant component's Update is skipped until Wake, e.g. from an event or another component's Update
+	public void Sleep()
+	{
+		this.m_dormant = true;
+	}
+
+	public void Wake()
+	{
+		if(!m_dormant)
+			return;
+
+		//Resume with a single tick's delta rather than the whole time spent asleep
+		this.m_lastUpdateTick = -1;
+		this.m_dormant = false;
+	}
+
+	public boolean IsDormant()                   { return m_dormant; }
+	public int GetTickInterval()                 { return m_tickInterval; }
+	public boolean GetUpdateLOD()                { return m_updateLOD; }
+
+	//Bookkeeping owned by UpdateScheduler
+	public int GetLODMultiplier()                { return m_lodMultiplier; }
+	public void SetLODMultiplier(int multiplier) { this.m_lodMultiplier = multiplier; }
+	public int GetTickPhase()                    { return m_tickPhase; }
+	public void SetTickPhase(int phase)          { this.m_tickPhase = phase; }
+	public long GetLastUpdateTick()              { return m_lastUpdateTick; }
+	public void SetLastUpdateTick(long tick)     { this.m_lastUpdateTick = tick; }
+
 	public void SetParent(GameObject parent)
 	{
 		this.m_parent = parent;
@@ -41,5 +119,6 @@ public abstract class GameComponent
 	}
 
 	public void AddToEngine(CoreEngine engine) {}
+	public void RemoveFromEngine(CoreEngine engine) {}
 }
 
@@ -16,8 +16,11 @@
 
 package com.base.engine.components;
 
+import com.base.engine.core.CoreEngine;
+import com.base.engine.core.SpatialIndex;
 import com.base.engine.rendering.Material;
 import com.base.engine.rendering.Mesh;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.RenderingEngine;
 import com.base.engine.rendering.Shader;
 
@@ -25,6 +28,8 @@ public class MeshRenderer extends GameComponent
 {
 	private Mesh     m_mesh;
 	private Material m_material;
+	private SpatialIndex.Entry m_boundsEntry;
+	private boolean  m_batched;
 
 	public MeshRenderer(Mesh mesh, Material material)
 	{
@@ -32,11 +37,60 @@ public class MeshRenderer extends GameComponent
 		this.m_material = material;
 	}
 
+	public Mesh GetMesh()
+	{
+		return m_mesh;
+	}
+
+	public Material GetMaterial()
+	{
+		return m_material;
+	}
+
+	//Set once a StaticBatcher has merged this renderer's geometry into a shared mesh, which then draws it
+	public void SetBatched(boolean batched)
+	{
+		this.m_batched = batched;
+	}
+
+	public boolean IsBatched()
+	{
+		return m_batched;
+	}
+
+	@Override
+	public void AddToEngine(CoreEngine engine)
+	{
+		//Headless engines have no rendering engine
+		if(engine.GetRenderingEngine() != null)
+			m_boundsEntry = engine.GetRenderingEngine().GetSpatialIndex().Add(this, m_mesh.GetBounds());
+	}
+
+	@Override
+	public void RemoveFromEngine(CoreEngine engine)
+	{
+		if(m_boundsEntry != null)
+			engine.GetRenderingEngine().GetSpatialIndex().Remove(m_boundsEntry);
+		m_boundsEntry = null;
+	}
+
 	@Override
 	public void Render(Shader shader, RenderingEngine renderingEngine)
 	{
+		if(m_batched || (m_boundsEntry != null && !renderingEngine.IsVisible(m_boundsEntry)))
+			return;
+
 		shader.Bind();
 		shader.UpdateUniforms(GetTransform(), m_material, renderingEngine);
 		m_mesh.Draw();
 	}
+
+	@Override
+	public void Snapshot(RenderSnapshot snapshot, RenderingEngine renderingEngine)
+	{
+		if(m_batched || (m_boundsEntry != null && !renderingEngine.IsVisible(m_boundsEntry)))
+			return;
+
+		snapshot.AddRenderer(m_mesh, m_material, GetTransform());
+	}
 }
@@ -16,8 +16,12 @@
 
 package com.base.engine.components;
 
+import com.base.engine.core.CoreEngine;
+import com.base.engine.core.ScratchPool;
+import com.base.engine.core.SpatialIndex;
 import com.base.engine.core.Vector3f;
 import com.base.engine.rendering.Attenuation;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.Shader;
 
 public class PointLight extends BaseLight
@@ -26,6 +30,7 @@ public class PointLight extends BaseLight
 
 	private Attenuation m_attenuation;
 	private float       m_range;
+	private SpatialIndex.Entry m_boundsEntry;
 	
 	public PointLight(Vector3f color, float intensity, Attenuation attenuation)
 	{
@@ -41,6 +46,42 @@ public class PointLight extends BaseLight
 		SetShader(new Shader("forward-point"));
 	}
 
+	@Override
+	public void AddToEngine(CoreEngine engine)
+	{
+		super.AddToEngine(engine);
+
+		if(engine.GetRenderingEngine() != null)
+			m_boundsEntry = engine.GetRenderingEngine().GetSpatialIndex().Add(this, m_range);
+	}
+
+	@Override
+	public void RemoveFromEngine(CoreEngine engine)
+	{
+		super.RemoveFromEngine(engine);
+
+		if(m_boundsEntry != null)
+			engine.GetRenderingEngine().GetSpatialIndex().Remove(m_boundsEntry);
+		m_boundsEntry = null;
+	}
+
+	//Null until the light is added to an engine
+	public SpatialIndex.Entry GetBoundsEntry()
+	{
+		return m_boundsEntry;
+	}
+
+	@Override
+	public void StoreState(RenderSnapshot.Light dest)
+	{
+		super.StoreState(dest);
+
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+		dest.SetPoint(GetTransform().GetTransformedPos(scratch.NextVector3f()), m_attenuation, m_range);
+		scratch.Pop();
+	}
+
 	public float GetRange()
 	{
 		return m_range;
@@ -49,6 +90,9 @@ public class PointLight extends BaseLight
 	public void SetRange(float range)
 	{
 		this.m_range = range;
+
+		if(m_boundsEntry != null)
+			m_boundsEntry.SetRadius(range);
 	}
 
 	public Attenuation GetAttenuation()
@@ -16,8 +16,10 @@
 
 package com.base.engine.components;
 
+import com.base.engine.core.ScratchPool;
 import com.base.engine.core.Vector3f;
 import com.base.engine.rendering.Attenuation;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.Shader;
 
 public class SpotLight extends PointLight
@@ -37,6 +39,18 @@ public class SpotLight extends PointLight
 		return GetTransform().GetTransformedRot().GetForward();
 	}
 
+	@Override
+	public void StoreState(RenderSnapshot.Light dest)
+	{
+		super.StoreState(dest);
+
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+		dest.SetDirection(GetTransform().GetTransformedRot(scratch.NextQuaternion()).GetForward(scratch.NextVector3f()));
+		dest.SetCutoff(m_cutoff);
+		scratch.Pop();
+	}
+
 	public float GetCutoff()
 	{
 		return m_cutoff;
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+public class AABB
+{
+	private Vector3f m_min;
+	private Vector3f m_max;
+
+	public AABB()
+	{
+		this(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0));
+	}
+
+	public AABB(Vector3f min, Vector3f max)
+	{
+		this.m_min = new Vector3f(0, 0, 0).Set(min);
+		this.m_max = new Vector3f(0, 0, 0).Set(max);
+	}
+
+	//Inverted box that any Expand call will snap to
+	public AABB InitEmpty()
+	{
+		m_min.Set(Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE);
+		m_max.Set(-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+
+		return this;
+	}
+
+	public boolean IsEmpty()
+	{
+		return m_min.GetX() > m_max.GetX() || m_min.GetY() > m_max.GetY() || m_min.GetZ() > m_max.GetZ();
+	}
+
+	public AABB Expand(float x, float y, float z)
+	{
+		m_min.Set(Math.min(m_min.GetX(), x), Math.min(m_min.GetY(), y), Math.min(m_min.GetZ(), z));
+		m_max.Set(Math.max(m_max.GetX(), x), Math.max(m_max.GetY(), y), Math.max(m_max.GetZ(), z));
+
+		return this;
+	}
+
+	public AABB Expand(Vector3f point)
+	{
+		return Expand(point.GetX(), point.GetY(), point.GetZ());
+	}
+
+	public AABB Merge(AABB r)
+	{
+		return Merge(r, this);
+	}
+
+	public AABB Merge(AABB r, AABB dest)
+	{
+		dest.m_min.Set(Math.min(m_min.GetX(), r.m_min.GetX()), Math.min(m_min.GetY(), r.m_min.GetY()), Math.min(m_min.GetZ(), r.m_min.GetZ()));
+		dest.m_max.Set(Math.max(m_max.GetX(), r.m_max.GetX()), Math.max(m_max.GetY(), r.m_max.GetY()), Math.max(m_max.GetZ(), r.m_max.GetZ()));
+
+		return dest;
+	}
+
+	public boolean Intersects(AABB r)
+	{
+		return m_min.GetX() <= r.m_max.GetX() && m_max.GetX() >= r.m_min.GetX() &&
+		       m_min.GetY() <= r.m_max.GetY() && m_max.GetY() >= r.m_min.GetY() &&
+		       m_min.GetZ() <= r.m_max.GetZ() && m_max.GetZ() >= r.m_min.GetZ();
+	}
+
+	public boolean Contains(AABB r)
+	{
+		return m_min.GetX() <= r.m_min.GetX() && m_max.GetX() >= r.m_max.GetX() &&
+		       m_min.GetY() <= r.m_min.GetY() && m_max.GetY() >= r.m_max.GetY() &&
+		       m_min.GetZ() <= r.m_min.GetZ() && m_max.GetZ() >= r.m_max.GetZ();
+	}
+
+	public boolean Contains(Vector3f point)
+	{
+		return point.GetX() >= m_min.GetX() && point.GetX() <= m_max.GetX() &&
+		       point.GetY() >= m_min.GetY() && point.GetY() <= m_max.GetY() &&
+		       point.GetZ() >= m_min.GetZ() && point.GetZ() <= m_max.GetZ();
+	}
+
+	public float SurfaceArea()
+	{
+		float x = m_max.GetX() - m_min.GetX();
+		float y = m_max.GetY() - m_min.GetY();
+		float z = m_max.GetZ() - m_min.GetZ();
+
+		return 2.0f * (x * y + y * z + z * x);
+	}
+
+	//Arvo's method: each output axis sums the smaller/larger contribution of every input axis, so the
+	//result is the tightest box around the transformed corners without transforming all eight of them
+	public AABB Transform(Matrix4f matrix, AABB dest)
+	{
+		float[] m = matrix.GetData();
+
+		float minX = m_min.GetX(), minY = m_min.GetY(), minZ = m_min.GetZ();
+		float maxX = m_max.GetX(), maxY = m_max.GetY(), maxZ = m_max.GetZ();
+
+		float loX = m[ 3] + Math.min(m[ 0] * minX, m[ 0] * maxX) + Math.min(m[ 1] * minY, m[ 1] * maxY) + Math.min(m[ 2] * minZ, m[ 2] * maxZ);
+		float hiX = m[ 3] + Math.max(m[ 0] * minX, m[ 0] * maxX) + Math.max(m[ 1] * minY, m[ 1] * maxY) + Math.max(m[ 2] * minZ, m[ 2] * maxZ);
+		float loY = m[ 7] + Math.min(m[ 4] * minX, m[ 4] * maxX) + Math.min(m[ 5] * minY, m[ 5] * maxY) + Math.min(m[ 6] * minZ, m[ 6] * maxZ);
+		float hiY = m[ 7] + Math.max(m[ 4] * minX, m[ 4] * maxX) + Math.max(m[ 5] * minY, m[ 5] * maxY) + Math.max(m[ 6] * minZ, m[ 6] * maxZ);
+		float loZ = m[11] + Math.min(m[ 8] * minX, m[ 8] * maxX) + Math.min(m[ 9] * minY, m[ 9] * maxY) + Math.min(m[10] * minZ, m[10] * maxZ);
+		float hiZ = m[11] + Math.max(m[ 8] * minX, m[ 8] * maxX) + Math.max(m[ 9] * minY, m[ 9] * maxY) + Math.max(m[10] * minZ, m[10] * maxZ);
+
+		dest.m_min.Set(loX, loY, loZ);
+		dest.m_max.Set(hiX, hiY, hiZ);
+
+		return dest;
+	}
+
+	public AABB Set(AABB r)
+	{
+		m_min.Set(r.m_min);
+		m_max.Set(r.m_max);
+
+		return this;
+	}
+
+	public AABB Set(Vector3f min, Vector3f max)
+	{
+		m_min.Set(min);
+		m_max.Set(max);
+
+		return this;
+	}
+
+	public Vector3f GetCenter(Vector3f dest)
+	{
+		return dest.Set((m_min.GetX() + m_max.GetX()) * 0.5f, (m_min.GetY() + m_max.GetY()) * 0.5f, (m_min.GetZ() + m_max.GetZ()) * 0.5f);
+	}
+
+	public Vector3f GetExtents(Vector3f dest)
+	{
+		return dest.Set((m_max.GetX() - m_min.GetX()) * 0.5f, (m_max.GetY() - m_min.GetY()) * 0.5f, (m_max.GetZ() - m_min.GetZ()) * 0.5f);
+	}
+
+	public Vector3f GetMin()
+	{
+		return m_min;
+	}
+
+	public Vector3f GetMax()
+	{
+		return m_max;
+	}
+}
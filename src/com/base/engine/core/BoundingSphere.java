@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+public class BoundingSphere
+{
+	private Vector3f m_center;
+	private float    m_radius;
+
+	public BoundingSphere()
+	{
+		this(new Vector3f(0, 0, 0), 0);
+	}
+
+	public BoundingSphere(Vector3f center, float radius)
+	{
+		this.m_center = new Vector3f(0, 0, 0).Set(center);
+		this.m_radius = radius;
+	}
+
+	public BoundingSphere InitFromAABB(AABB box)
+	{
+		Vector3f min = box.GetMin();
+		Vector3f max = box.GetMax();
+
+		float x = (max.GetX() - min.GetX()) * 0.5f;
+		float y = (max.GetY() - min.GetY()) * 0.5f;
+		float z = (max.GetZ() - min.GetZ()) * 0.5f;
+
+		box.GetCenter(m_center);
+		m_radius = (float)Math.sqrt(x * x + y * y + z * z);
+
+		return this;
+	}
+
+	public boolean Intersects(BoundingSphere r)
+	{
+		float x = m_center.GetX() - r.m_center.GetX();
+		float y = m_center.GetY() - r.m_center.GetY();
+		float z = m_center.GetZ() - r.m_center.GetZ();
+		float radius = m_radius + r.m_radius;
+
+		return x * x + y * y + z * z <= radius * radius;
+	}
+
+	public boolean Contains(Vector3f point)
+	{
+		float x = m_center.GetX() - point.GetX();
+		float y = m_center.GetY() - point.GetY();
+		float z = m_center.GetZ() - point.GetZ();
+
+		return x * x + y * y + z * z <= m_radius * m_radius;
+	}
+
+	//The radius is scaled by the longest basis vector, so non-uniform scale yields a conservative sphere
+	public BoundingSphere Transform(Matrix4f matrix, BoundingSphere dest)
+	{
+		float[] m = matrix.GetData();
+
+		float sx = m[0] * m[0] + m[4] * m[4] + m[ 8] * m[ 8];
+		float sy = m[1] * m[1] + m[5] * m[5] + m[ 9] * m[ 9];
+		float sz = m[2] * m[2] + m[6] * m[6] + m[10] * m[10];
+
+		float radius = m_radius * (float)Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+
+		matrix.Transform(m_center, dest.m_center);
+		dest.m_radius = radius;
+
+		return dest;
+	}
+
+	public BoundingSphere Set(BoundingSphere r)
+	{
+		m_center.Set(r.m_center);
+		m_radius = r.m_radius;
+
+		return this;
+	}
+
+	public Vector3f GetCenter()
+	{
+		return m_center;
+	}
+
+	public float GetRadius()
+	{
+		return m_radius;
+	}
+
+	public void SetRadius(float radius)
+	{
+		this.m_radius = radius;
+	}
+}
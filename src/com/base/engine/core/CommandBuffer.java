@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import com.base.engine.components.GameComponent;
+
+import java.util.Arrays;
+
+//Structural scene changes recorded during a frame and applied together at a safe point in the CoreEngine loop,
+//after Update and before Render. Commands run in the order they were queued. Queueing is thread safe, so parallel
+//updates may use it too.
+public class CommandBuffer
+{
+	private static final int ADD_CHILD        = 0;
+	private static final int REMOVE_CHILD     = 1;
+	private static final int ADD_COMPONENT    = 2;
+	private static final int REMOVE_COMPONENT = 3;
+	private static final int DESTROY          = 4;
+
+	private int[]        m_types;
+	private GameObject[] m_targets;
+	private Object[]     m_arguments;
+	private int          m_size;
+
+	public CommandBuffer()
+	{
+		m_types = new int[32];
+		m_targets = new GameObject[32];
+		m_arguments = new Object[32];
+		m_size = 0;
+	}
+
+	public void AddChild(GameObject parent, GameObject child)               { Queue(ADD_CHILD, parent, child); }
+	public void RemoveChild(GameObject parent, GameObject child)            { Queue(REMOVE_CHILD, parent, child); }
+	public void AddComponent(GameObject object, GameComponent component)    { Queue(ADD_COMPONENT, object, component); }
+	public void RemoveComponent(GameObject object, GameComponent component) { Queue(REMOVE_COMPONENT, object, component); }
+	public void Destroy(GameObject object)                                  { Queue(DESTROY, object, null); }
+
+	private synchronized void Queue(int type, GameObject target, Object argument)
+	{
+		if(m_size == m_types.length)
+		{
+			m_types = Arrays.copyOf(m_types, m_size * 2);
+			m_targets = Arrays.copyOf(m_targets, m_size * 2);
+			m_arguments = Arrays.copyOf(m_arguments, m_size * 2);
+		}
+
+		m_types[m_size] = type;
+		m_targets[m_size] = target;
+		m_arguments[m_size] = argument;
+		m_size++;
+	}
+
+	//Commands queued while applying (by pooling hooks or AddToEngine, say) run in the same call
+	public synchronized void Apply()
+	{
+		for(int i = 0; i < m_size; i++)
+		{
+			GameObject target = m_targets[i];
+			Object argument = m_arguments[i];
+
+			switch(m_types[i])
+			{
+				case ADD_CHILD:        target.AddChild((GameObject)argument); break;
+				case REMOVE_CHILD:     target.RemoveChild((GameObject)argument); break;
+				case ADD_COMPONENT:    target.AddComponent((GameComponent)argument); break;
+				case REMOVE_COMPONENT: target.RemoveComponent((GameComponent)argument); break;
+				case DESTROY:          target.Destroy(); break;
+			}
+
+			m_targets[i] = null;
+			m_arguments[i] = null;
+		}
+
+		m_size = 0;
+	}
+
+	public boolean IsEmpty()
+	{
+		return m_size == 0;
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import com.base.engine.components.GameComponent;
+import com.base.engine.rendering.RenderSnapshot;
+import com.base.engine.rendering.RenderingEngine;
+import com.base.engine.rendering.Shader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.stream.Stream;
+
+public class ComponentRegistry
+{
+	public static final int HOOK_INPUT  = 1;
+	public static final int HOOK_UPDATE = 2;
+	public static final int HOOK_RENDER = 4;
+
+	private static final int PARALLEL_THRESHOLD = 128;
+	private static final int PARALLEL_GRAIN     = 32;
+
+	private static final HashMap<Class<?>, Integer> s_hookCache = new HashMap<Class<?>, Integer>();
+
+	//Dense per-hook arrays; components that inherit the no-op from GameComponent are left out
+	private GameObject[]    m_objects;
+	private GameComponent[] m_inputComponents;
+	private GameComponent[] m_updateComponents;
+	private GameComponent[] m_renderComponents;
+
+	private int m_numObjects;
+	private int m_numInput;
+	private int m_numUpdate;
+	private int m_numRender;
+
+	//Update schedule for parallel mode, derived from m_updateComponents: write-set groups laid out back to back,
+	//group g being m_parallelComponents[m_groupStarts[g] .. m_groupStarts[g + 1]), plus the main-thread remainder
+	private boolean         m_parallel;
+	private boolean         m_scheduleValid;
+	private GameComponent[] m_parallelComponents;
+	private int[]           m_groupStarts;
+	private int             m_numGroups;
+	private GameComponent[] m_mainComponents;
+	private int             m_numMain;
+
+	private UpdateScheduler m_scheduler;
+
+	public ComponentRegistry()
+	{
+		m_objects = new GameObject[16];
+		m_inputComponents = new GameComponent[16];
+		m_updateComponents = new GameComponent[16];
+		m_renderComponents = new GameComponent[16];
+		m_scheduler = new UpdateScheduler();
+		Clear();
+	}
+
+	//Which of Input/Update/Render the class overrides, resolved once per class
+	public static synchronized int GetHooks(Class<? extends GameComponent> type)
+	{
+		Integer hooks = s_hookCache.get(type);
+
+		if(hooks == null)
+		{
+			int result = 0;
+
+			if(Overrides(type, "Input", float.class))
+				result |= HOOK_INPUT;
+			if(Overrides(type, "Update", float.class))
+				result |= HOOK_UPDATE;
+			if(Overrides(type, "Render", Shader.class, RenderingEngine.class))
+				result |= HOOK_RENDER;
+
+			hooks = result;
+			s_hookCache.put(type, hooks);
+		}
+
+		return hooks;
+	}
+
+	private static boolean Overrides(Class<?> type, String name, Class<?>... parameterTypes)
+	{
+		try
+		{
+			return type.getMethod(name, parameterTypes).getDeclaringClass() != GameComponent.class;
+		}
+		catch(NoSuchMethodException e)
+		{
+			//Cannot happen for a GameComponent subclass; dispatching anyway is the safe answer
+			return true;
+		}
+	}
+
+	//Drops the references too, so removed objects and their components can be collected before the next rebuild
+	public void Clear()
+	{
+		Arrays.fill(m_objects, 0, m_numObjects, null);
+		Arrays.fill(m_inputComponents, 0, m_numInput, null);
+		Arrays.fill(m_updateComponents, 0, m_numUpdate, null);
+		Arrays.fill(m_renderComponents, 0, m_numRender, null);
+
+		if(m_scheduleValid)
+		{
+			Arrays.fill(m_parallelComponents, null);
+			Arrays.fill(m_mainComponents, null);
+		}
+
+		m_numObjects = 0;
+		m_numInput = 0;
+		m_numUpdate = 0;
+		m_numRender = 0;
+		m_scheduleValid = false;
+	}
+
+	//Objects must be added in traversal order
+	public void Add(GameObject object, ArrayList<GameComponent> components)
+	{
+		if(m_numObjects == m_objects.length)
+			m_objects = Grow(m_objects);
+
+		m_objects[m_numObjects] = object;
+
+		for(int i = 0; i < components.size(); i++)
+		{
+			GameComponent component = components.get(i);
+			int hooks = GetHooks(component.getClass());
+
+			if((hooks & HOOK_INPUT) != 0)
+			{
+				if(m_numInput == m_inputComponents.length)
+					m_inputComponents = Grow(m_inputComponents);
+				m_inputComponents[m_numInput++] = component;
+			}
+			if((hooks & HOOK_UPDATE) != 0)
+			{
+				if(m_numUpdate == m_updateComponents.length)
+					m_updateComponents = Grow(m_updateComponents);
+				m_updateComponents[m_numUpdate++] = component;
+
+				if(component.GetTickPhase() < 0)
+					component.SetTickPhase(m_scheduler.NextPhase(component.GetTickInterval()));
+			}
+			if((hooks & HOOK_RENDER) != 0)
+			{
+				if(m_numRender == m_renderComponents.length)
+					m_renderComponents = Grow(m_renderComponents);
+				m_renderComponents[m_numRender++] = component;
+			}
+		}
+
+		m_numObjects++;
+	}
+
+	private static <T> T[] Grow(T[] array)
+	{
+		return Arrays.copyOf(array, array.length * 2);
+	}
+
+	public void Input(float delta)
+	{
+		for(int i = 0; i < m_numInput; i++)
+			m_inputComponents[i].Input(delta);
+	}
+
+	public void Update(float delta)
+	{
+		m_scheduler.BeginTick();
+
+		if(m_parallel)
+		{
+			UpdateSchedule();
+
+			if(m_parallelComponents.length >= PARALLEL_THRESHOLD)
+			{
+				UpdateParallel(delta);
+				return;
+			}
+		}
+
+		for(int i = 0; i < m_numUpdate; i++)
+			UpdateScheduled(m_updateComponents[i], delta);
+	}
+
+	private void UpdateScheduled(GameComponent component, float delta)
+	{
+		float scheduledDelta = m_scheduler.Schedule(component, delta);
+
+		if(scheduledDelta >= 0)
+			component.Update(scheduledDelta);
+	}
+
+	//Parallel components first, then main-thread ones in traversal order. UpdateGroups returns only once every job
+	//it scheduled finished, so everything written on the workers is visible to the main-thread components and to Render.
+	private void UpdateParallel(float delta)
+	{
+		//Any pending reparenting is resolved now; the store must not reorder indices while workers use it. Its world
+		//state then stays frozen, so every worker reads the same snapshot whatever order the groups run in.
+		TransformStore store = m_objects[0].GetTransform().GetStore();
+		store.Update();
+		store.SetFrozen(true);
+
+		try
+		{
+			UpdateGroups(0, m_numGroups, delta);
+		}
+		finally
+		{
+			store.SetFrozen(false);
+		}
+
+		for(int i = 0; i < m_numMain; i++)
+			UpdateScheduled(m_mainComponents[i], delta);
+	}
+
+	private void UpdateSchedule()
+	{
+		if(m_scheduleValid)
+			return;
+
+		IdentityHashMap<Object, ArrayList<GameComponent>> groups = new IdentityHashMap<Object, ArrayList<GameComponent>>();
+		ArrayList<ArrayList<GameComponent>> groupOrder = new ArrayList<ArrayList<GameComponent>>();
+		ArrayList<GameComponent> main = new ArrayList<GameComponent>();
+		int numParallel = 0;
+
+		for(int i = 0; i < m_numUpdate; i++)
+		{
+			GameComponent component = m_updateComponents[i];
+
+			if(component.GetUpdateMode() != GameComponent.UPDATE_PARALLEL)
+			{
+				main.add(component);
+				continue;
+			}
+
+			Object writeSet = component.GetUpdateWriteSet();
+			ArrayList<GameComponent> group = groups.get(writeSet);
+
+			if(group == null)
+			{
+				group = new ArrayList<GameComponent>();
+				groups.put(writeSet, group);
+				groupOrder.add(group);
+			}
+
+			group.add(component);
+			numParallel++;
+		}
+
+		m_parallelComponents = new GameComponent[numParallel];
+		m_groupStarts = new int[groupOrder.size() + 1];
+		m_numGroups = groupOrder.size();
+
+		int count = 0;
+
+		for(int g = 0; g < m_numGroups; g++)
+		{
+			for(GameComponent component : groupOrder.get(g))
+				m_parallelComponents[count++] = component;
+
+			m_groupStarts[g + 1] = count;
+		}
+
+		m_mainComponents = main.toArray(new GameComponent[main.size()]);
+		m_numMain = m_mainComponents.length;
+		m_scheduleValid = true;
+	}
+
+	//Splits between whole write-set groups only, so a group never runs on two threads
+	private void UpdateGroups(int startGroup, int endGroup, float delta)
+	{
+		if(endGroup - startGroup <= 1 || m_groupStarts[endGroup] - m_groupStarts[startGroup] <= PARALLEL_GRAIN)
+		{
+			for(int i = m_groupStarts[startGroup]; i < m_groupStarts[endGroup]; i++)
+				UpdateScheduled(m_parallelComponents[i], delta);
+			return;
+		}
+
+		int middle = (startGroup + endGroup) / 2;
+
+		Job firstHalf = JobSystem.GetDefault().Schedule(() -> UpdateGroups(startGroup, middle, delta));
+		UpdateGroups(middle, endGroup, delta);
+		firstHalf.Wait();
+	}
+
+	//Off by default; see GameComponent.GetUpdateMode for what parallel components may touch
+	public void SetParallel(boolean parallel)
+	{
+		this.m_parallel = parallel;
+	}
+
+	public void Render(Shader shader, RenderingEngine renderingEngine)
+	{
+		for(int i = 0; i < m_numRender; i++)
+			m_renderComponents[i].Render(shader, renderingEngine);
+	}
+
+	public UpdateScheduler GetScheduler()
+	{
+		return m_scheduler;
+	}
+
+	public void Snapshot(RenderSnapshot snapshot, RenderingEngine renderingEngine)
+	{
+		for(int i = 0; i < m_numRender; i++)
+			m_renderComponents[i].Snapshot(snapshot, renderingEngine);
+	}
+
+	public Stream<GameObject> StreamObjects()
+	{
+		return Arrays.stream(m_objects, 0, m_numObjects);
+	}
+
+	public int GetNumObjects()                         { return m_numObjects; }
+	public GameObject GetObject(int index)             { return m_objects[index]; }
+	public int GetNumUpdateComponents()                { return m_numUpdate; }
+	public GameComponent GetUpdateComponent(int index) { return m_updateComponents[index]; }
+	public int GetNumRenderComponents()                { return m_numRender; }
+	public GameComponent GetRenderComponent(int index) { return m_renderComponents[index]; }
+}
@@ -16,17 +16,36 @@
 
 package com.base.engine.core;
 
+import com.base.engine.rendering.RenderSnapshot;
+import com.base.engine.rendering.Mesh;
 import com.base.engine.rendering.RenderingEngine;
 import com.base.engine.rendering.Window;
 
+import java.util.concurrent.locks.LockSupport;
+
 public class CoreEngine
 {
-	private boolean         m_isRunning;
-	private Game            m_game;
-	private RenderingEngine m_renderingEngine;
-	private int             m_width;
-	private int             m_height;
-	private double          m_frameTime;
+	private static final long SNAPSHOT_WAIT_NANOS = 1000000L;
+	private static final int  DEFAULT_MAX_SUBSTEPS = 5;
+
+	private volatile boolean m_isRunning;
+	private Game             m_game;
+	private RenderingEngine  m_renderingEngine;
+	private int              m_width;
+	private int              m_height;
+	private double           m_frameTime;
+	private CommandBuffer    m_commands;
+	private FramePacer       m_pacer;
+	private boolean          m_threaded;
+	private boolean          m_headless;
+	private double           m_timeScale;
+	private double           m_ticksPerSecond;
+	private int              m_maxSubsteps;
+	private double           m_renderFrameTime;
+	private FrameMetrics     m_metrics;
+	private boolean          m_consoleReport;
+	private JobSystem        m_jobs;
+	private boolean          m_retainMeshData;
 	
 	public CoreEngine(int width, int height, double framerate, Game game)
 	{
@@ -35,6 +54,13 @@ public class CoreEngine
 		this.m_width = width;
 		this.m_height = height;
 		this.m_frameTime = 1.0/framerate;
+		this.m_commands = new CommandBuffer();
+		this.m_pacer = new FramePacer(FramePacer.LOW_LATENCY);
+		this.m_maxSubsteps = DEFAULT_MAX_SUBSTEPS;
+		this.m_renderFrameTime = 0;
+		this.m_metrics = new FrameMetrics();
+		this.m_consoleReport = true;
+		this.m_jobs = JobSystem.GetDefault();
 		game.SetEngine(this);
 	}
 
@@ -48,8 +74,20 @@ public class CoreEngine
 	{
 		if(m_isRunning)
 			return;
-		
-		Run();
+
+		//Unless set explicitly, a frame is over budget when it takes longer than its share of the target rate
+		if(m_metrics.getBudgetMillis() == 0)
+			m_metrics.SetBudget(m_renderFrameTime > 0 ? m_renderFrameTime : m_frameTime);
+
+		//Whichever thread starts the engine owns the GL context in every mode
+		m_jobs.SetMainThread(Thread.currentThread());
+
+		if(m_headless)
+			RunHeadless();
+		else if(m_threaded)
+			RunThreaded();
+		else
+			Run();
 	}
 	
 	public void Stop()
@@ -68,14 +106,23 @@ public class CoreEngine
 		double frameCounter = 0;
 
 		m_game.Init();
+		TransformStore.GetDefault().Update();
+		m_game.BuildStaticBatches();
+		Mesh.OnStaticBatchesBuilt(m_retainMeshData);
 
 		double lastTime = Time.GetTime();
 		double unprocessedTime = 0;
 		
 		while(m_isRunning)
 		{
-			boolean render = false;
+			m_jobs.RunMainThreadJobs();
 
+			//Rendering that isn't tied to ticks (uncapped, or at its own rate) draws every pass, blending between ticks
+			boolean interpolate = m_pacer.GetMode() == FramePacer.UNCAPPED || m_renderFrameTime > 0;
+			boolean render = interpolate;
+			int substeps = 0;
+
+			long passStart = System.nanoTime();
 			double startTime = Time.GetTime();
 			double passedTime = startTime - lastTime;
 			lastTime = startTime;
@@ -85,6 +132,14 @@ public class CoreEngine
 			
 			while(unprocessedTime > m_frameTime)
 			{
+				//Past the cap the backlog is dropped, so a stall slows the game down instead of spiralling
+				if(substeps == m_maxSubsteps)
+				{
+					unprocessedTime %= m_frameTime;
+					break;
+				}
+
+				substeps++;
 				render = true;
 				
 				unprocessedTime -= m_frameTime;
@@ -92,38 +147,260 @@ public class CoreEngine
 				if(Window.IsCloseRequested())
 					Stop();
 
-				m_game.Input((float) m_frameTime);
-				Input.Update();
-				
-				m_game.Update((float) m_frameTime);
+				TransformStore.GetDefault().BeginTick();
+				Tick();
 				
 				if(frameCounter >= 1.0)
 				{
-					System.out.println(frames);
+					Report(frames + " fps");
 					frames = 0;
 					frameCounter = 0;
 				}
 			}
 			if(render)
 			{
-				m_game.Render(m_renderingEngine);
+				//Picks up anything main-thread jobs moved since the last tick
+				TransformStore.GetDefault().Update();
+
+				long renderStart = System.nanoTime();
+				m_game.Render(m_renderingEngine, interpolate ? (float)(unprocessedTime / m_frameTime) : 1);
+				long swapStart = System.nanoTime();
 				Window.Render();
+				long frameEnd = System.nanoTime();
+
+				m_metrics.Record(FrameMetrics.RENDER, swapStart - renderStart);
+				m_metrics.Record(FrameMetrics.SWAP, frameEnd - swapStart);
+				m_metrics.Record(FrameMetrics.FRAME, frameEnd - passStart);
+				m_pacer.OnFrame();
 				frames++;
+
+				//Everything that moved has been seen by this frame's consumers, e.g. the spatial index
+				TransformStore.GetDefault().ClearChanges();
+
+				if(m_renderFrameTime > 0)
+					m_pacer.WaitUntil((long)((startTime + m_renderFrameTime) * 1000000000.0));
 			}
 			else
 			{
-				try
+				//Nothing to do until the next tick is due
+				m_pacer.WaitUntil((long)((lastTime + m_frameTime - unprocessedTime) * 1000000000.0));
+			}
+		}
+		
+		CleanUp();
+	}
+
+	//Input and Update run on a simulation thread, which publishes a RenderSnapshot after each batch of ticks; this
+	//thread, which owns the GL context, draws the newest snapshot. Init and static batching happen here first, since
+	//they may create GL resources.
+	private void RunThreaded()
+	{
+		m_isRunning = true;
+
+		int frames = 0;
+		double frameCounter = 0;
+
+		m_game.Init();
+		TransformStore.GetDefault().Update();
+		m_game.BuildStaticBatches();
+		Mesh.OnStaticBatchesBuilt(m_retainMeshData);
+
+		TripleBuffer<RenderSnapshot> snapshots = new TripleBuffer<RenderSnapshot>(new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+		Thread renderThread = Thread.currentThread();
+
+		//The simulation thread reads input sampled here, where LWJGL's keyboard and mouse live
+		InputSource previousSource = Input.GetSource();
+		ThreadedInput input = new ThreadedInput(Input.Source(), m_jobs);
+		Input.SetSource(input);
+
+		Thread simulationThread = new Thread(() -> Simulate(snapshots, renderThread, input), "Simulation");
+		simulationThread.start();
+
+		double lastTime = Time.GetTime();
+
+		while(m_isRunning)
+		{
+			if(Window.IsCloseRequested())
+				Stop();
+
+			m_jobs.RunMainThreadJobs();
+
+			//Uncapped redraws the last snapshot rather than waiting for a new one
+			if(!snapshots.HasNew() && m_pacer.GetMode() != FramePacer.UNCAPPED)
+			{
+				LockSupport.parkNanos(SNAPSHOT_WAIT_NANOS);
+				continue;
+			}
+
+			long renderStart = System.nanoTime();
+			m_renderingEngine.Render(snapshots.Acquire());
+			long swapStart = System.nanoTime();
+			Window.Render();
+			long frameEnd = System.nanoTime();
+
+			input.Sample();
+
+			//Simulation runs concurrently, so a frame here is render plus swap
+			m_metrics.Record(FrameMetrics.RENDER, swapStart - renderStart);
+			m_metrics.Record(FrameMetrics.SWAP, frameEnd - swapStart);
+			m_metrics.Record(FrameMetrics.FRAME, frameEnd - renderStart);
+			m_pacer.OnFrame();
+			frames++;
+
+			double time = Time.GetTime();
+			frameCounter += time - lastTime;
+			lastTime = time;
+
+			if(frameCounter >= 1.0)
+			{
+				Report(frames + " fps");
+				frames = 0;
+				frameCounter = 0;
+			}
+		}
+
+		try
+		{
+			simulationThread.join();
+		}
+		catch(InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+
+		Input.SetSource(previousSource);
+		CleanUp();
+	}
+
+	//The fixed-step loop of Run, minus rendering. Nothing here may make GL calls, which rules out creating meshes,
+	//textures or shaders (and so lights) from Update while threaded. Input reads copies sampled on the GL thread.
+	private void Simulate(TripleBuffer<RenderSnapshot> snapshots, Thread renderThread, ThreadedInput input)
+	{
+		try
+		{
+			FramePacer pacer = new FramePacer(m_pacer.GetMode() == FramePacer.UNCAPPED ? FramePacer.LOW_LATENCY : m_pacer.GetMode());
+
+			double lastTime = Time.GetTime();
+			double unprocessedTime = 0;
+
+			while(m_isRunning)
+			{
+				boolean ticked = false;
+
+				double startTime = Time.GetTime();
+				unprocessedTime += startTime - lastTime;
+				lastTime = startTime;
+
+				int substeps = 0;
+
+				while(unprocessedTime > m_frameTime)
 				{
-					Thread.sleep(1);
+					if(substeps == m_maxSubsteps)
+					{
+						unprocessedTime %= m_frameTime;
+						break;
+					}
+
+					substeps++;
+					ticked = true;
+					unprocessedTime -= m_frameTime;
+
+					TransformStore.GetDefault().BeginTick();
+					input.Acquire();
+					Tick();
 				}
-				catch (InterruptedException e)
+
+				if(ticked)
 				{
-					e.printStackTrace();
+					TransformStore.GetDefault().Update();
+					m_game.Snapshot(m_renderingEngine, snapshots.GetWriteBuffer());
+					TransformStore.GetDefault().ClearChanges();
+					snapshots.Publish();
+					LockSupport.unpark(renderThread);
 				}
+				else
+					pacer.WaitUntil((long)((lastTime + m_frameTime - unprocessedTime) * 1000000000.0));
+			}
+		}
+		catch(Throwable e)
+		{
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	//Ticks at the fixed delta with no window, GL context or rendering engine, either as fast as possible or paced to
+	//m_timeScale times real time. Prints the measured ticks per second once a second.
+	private void RunHeadless()
+	{
+		m_isRunning = true;
+
+		if(Input.GetSource() == null)
+			Input.SetSource(InputSource.NONE);
+
+		m_game.Init();
+		TransformStore.GetDefault().Update();
+
+		long tickNanos = m_timeScale > 0 ? (long)(m_frameTime * 1000000000.0 / m_timeScale) : 0;
+		long nextTick = System.nanoTime();
+		long reportStart = nextTick;
+		int ticks = 0;
+
+		while(m_isRunning)
+		{
+			m_jobs.RunMainThreadJobs();
+			Tick();
+
+			//Nothing consumes the change list without a renderer; keep it from growing
+			TransformStore.GetDefault().ClearChanges();
+			ticks++;
+
+			long now = System.nanoTime();
+
+			if(now - reportStart >= 1000000000L)
+			{
+				m_ticksPerSecond = ticks * 1000000000.0 / (now - reportStart);
+				Report(String.format("%.1f ticks/s", m_ticksPerSecond));
+				ticks = 0;
+				reportStart = now;
+			}
+
+			if(tickNanos > 0)
+			{
+				nextTick += tickNanos;
+				m_pacer.WaitUntil(nextTick);
 			}
 		}
-		
-		CleanUp();
+	}
+
+	//One fixed step, timed per phase. World transforms are flushed after each phase, so Update reads what Input
+	//moved and rendering reads what Update moved, without every getter rescanning the store.
+	private void Tick()
+	{
+		long inputStart = System.nanoTime();
+		m_game.Input((float) m_frameTime);
+		Input.Update();
+		TransformStore.GetDefault().Update();
+
+		long updateStart = System.nanoTime();
+		m_game.Update((float) m_frameTime);
+		m_commands.Apply();
+		TransformStore.GetDefault().Update();
+
+		long updateEnd = System.nanoTime();
+		m_metrics.Record(FrameMetrics.INPUT, updateStart - inputStart);
+		m_metrics.Record(FrameMetrics.UPDATE, updateEnd - updateStart);
+	}
+
+	//Closes the metrics interval, about once a second
+	private void Report(String rate)
+	{
+		m_metrics.Roll();
+
+		if(m_consoleReport)
+			System.out.println(rate + ", " + m_metrics.GetSummary() + (m_headless ? "" : ", " + m_pacer.GetReport()));
+
+		m_pacer.ResetStats();
 	}
 
 	private void CleanUp()
@@ -131,7 +408,71 @@ public class CoreEngine
 		Window.Dispose();
 	}
 
+	//One of FramePacer.POWER_SAVING, LOW_LATENCY (the default) or UNCAPPED
+	public void SetFramePacing(int mode) {
+		m_pacer.SetMode(mode);
+	}
+
+	//At most this many ticks run between two rendered frames; any further backlog is discarded
+	public void SetMaxSubsteps(int maxSubsteps) {
+		this.m_maxSubsteps = Math.max(1, maxSubsteps);
+	}
+
+	//Renders at framerate independently of the tick rate, interpolating between ticks; 0 renders once per batch of
+	//ticks as before. E.g. a 30 Hz simulation rendered at 144 Hz.
+	public void SetRenderFrameRate(double framerate) {
+		this.m_renderFrameTime = framerate > 0 ? 1.0 / framerate : 0;
+	}
+
+	//Runs simulation and rendering on separate threads; must be chosen before Start. Render components are then
+	//drawn through GameComponent.Snapshot instead of Render.
+	public void SetThreadedRendering(boolean threaded) {
+		this.m_threaded = threaded;
+	}
+
+	//Runs without a window; don't call CreateWindow, and keep Init and Update free of GL resources (meshes, textures,
+	//shaders and so lights). timeScale 0 steps as fast as possible, otherwise at that multiple of real time.
+	public void SetHeadless(double timeScale) {
+		this.m_headless = true;
+		this.m_timeScale = timeScale;
+	}
+
+	//Measured over the last full second of a headless run
+	public double GetTicksPerSecond() {
+		return m_ticksPerSecond;
+	}
+
+	//Per-phase timing histograms; see FrameMetrics.SetDump and RegisterMBean
+	public FrameMetrics GetMetrics() {
+		return m_metrics;
+	}
+
+	//Whether the once-a-second summary is printed; the metrics are collected either way
+	public void SetConsoleReport(boolean consoleReport) {
+		this.m_consoleReport = consoleReport;
+	}
+
+	//Keeps every mesh's CPU-side vertex and index data after startup, e.g. for tools that rebatch or save scenes often;
+	//otherwise saving a procedural mesh reads it back from the GPU
+	public void SetRetainMeshData(boolean retainMeshData) {
+		this.m_retainMeshData = retainMeshData;
+	}
+
+	//The worker pool shared by the engine's subsystems; main-thread jobs are run once per frame
+	public JobSystem GetJobSystem() {
+		return m_jobs;
+	}
+
+	public FramePacer GetFramePacer() {
+		return m_pacer;
+	}
+
 	public RenderingEngine GetRenderingEngine() {
 		return m_renderingEngine;
 	}
+
+	//Structural scene changes queued here are applied once per tick, after Update
+	public CommandBuffer GetCommandBuffer() {
+		return m_commands;
+	}
 }
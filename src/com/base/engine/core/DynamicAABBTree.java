@@ -0,0 +1,723 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+//Incrementally maintained bounding volume hierarchy (in the style of Box2D's dynamic tree). Every proxy is a leaf
+//with its exact box plus an enlarged "fat" box; moves that stay inside the fat box cost nothing, and the rest are
+//reinserted using the surface area heuristic and kept balanced with AVL-style rotations. Queries share one stack,
+//so a tree must not be queried from several threads at once.
+public class DynamicAABBTree<T>
+{
+	public static final int NULL_NODE = -1;
+
+	private static final int   INITIAL_CAPACITY = 16;
+	private static final float DEFAULT_MARGIN   = 0.1f;
+
+	//Node boxes are packed as (minX, minY, minZ, maxX, maxY, maxZ); m_tight is only meaningful for leaves
+	private float[]  m_fat;
+	private float[]  m_tight;
+	private int[]    m_parents;
+	private int[]    m_children1;
+	private int[]    m_children2;
+	private int[]    m_heights;
+	private Object[] m_data;
+
+	private int      m_root;
+	private int      m_freeList;
+	private int      m_numProxies;
+	private float    m_margin;
+
+	private int[]    m_stack;
+
+	public DynamicAABBTree()
+	{
+		m_root = NULL_NODE;
+		m_freeList = NULL_NODE;
+		m_numProxies = 0;
+		m_margin = DEFAULT_MARGIN;
+		m_stack = new int[64];
+
+		m_fat = new float[0];
+		m_tight = new float[0];
+		m_parents = new int[0];
+		m_children1 = new int[0];
+		m_children2 = new int[0];
+		m_heights = new int[0];
+		m_data = new Object[0];
+
+		Grow(INITIAL_CAPACITY);
+	}
+
+	public int CreateProxy(AABB bounds, T data)
+	{
+		int proxy = AllocateNode();
+
+		SetBox(m_tight, proxy, bounds);
+		SetFatBox(proxy);
+		m_data[proxy] = data;
+		m_heights[proxy] = 0;
+		m_numProxies++;
+
+		InsertLeaf(proxy);
+
+		return proxy;
+	}
+
+	public void DestroyProxy(int proxy)
+	{
+		RemoveLeaf(proxy);
+		FreeNode(proxy);
+		m_numProxies--;
+	}
+
+	//Returns true if the proxy had to be reinserted because it left its fat box
+	public boolean MoveProxy(int proxy, AABB bounds)
+	{
+		SetBox(m_tight, proxy, bounds);
+
+		if(Contains(m_fat, proxy, m_tight, proxy))
+			return false;
+
+		RemoveLeaf(proxy);
+		SetFatBox(proxy);
+		InsertLeaf(proxy);
+
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T GetData(int proxy)
+	{
+		return (T)m_data[proxy];
+	}
+
+	public AABB GetBounds(int proxy, AABB dest)
+	{
+		int o = proxy * 6;
+
+		dest.GetMin().Set(m_tight[o], m_tight[o + 1], m_tight[o + 2]);
+		dest.GetMax().Set(m_tight[o + 3], m_tight[o + 4], m_tight[o + 5]);
+
+		return dest;
+	}
+
+	//Visits every proxy that is not entirely outside the frustum. Subtrees found fully inside are visited without
+	//testing their leaves.
+	@SuppressWarnings("unchecked")
+	public void Query(Frustum frustum, Consumer<T> visitor)
+	{
+		if(m_root == NULL_NODE)
+			return;
+
+		int top = 0;
+		m_stack[top++] = m_root;
+
+		while(top > 0)
+		{
+			int entry = m_stack[--top];
+
+			//Negative entries mark nodes already known to be inside
+			if(entry < 0)
+			{
+				int node = ~entry;
+
+				if(IsLeaf(node))
+					visitor.accept((T)m_data[node]);
+				else
+				{
+					top = Push(top, ~m_children1[node]);
+					top = Push(top, ~m_children2[node]);
+				}
+
+				continue;
+			}
+
+			int o = entry * 6;
+			int result = frustum.TestAABB(m_fat[o], m_fat[o + 1], m_fat[o + 2], m_fat[o + 3], m_fat[o + 4], m_fat[o + 5]);
+
+			if(result == Frustum.OUTSIDE)
+				continue;
+
+			if(IsLeaf(entry))
+			{
+				if(result == Frustum.INSIDE ||
+				   frustum.TestAABB(m_tight[o], m_tight[o + 1], m_tight[o + 2], m_tight[o + 3], m_tight[o + 4], m_tight[o + 5]) != Frustum.OUTSIDE)
+					visitor.accept((T)m_data[entry]);
+			}
+			else if(result == Frustum.INSIDE)
+			{
+				top = Push(top, ~m_children1[entry]);
+				top = Push(top, ~m_children2[entry]);
+			}
+			else
+			{
+				top = Push(top, m_children1[entry]);
+				top = Push(top, m_children2[entry]);
+			}
+		}
+	}
+
+	//Visits every proxy whose box overlaps the given box
+	@SuppressWarnings("unchecked")
+	public void Query(AABB bounds, Consumer<T> visitor)
+	{
+		if(m_root == NULL_NODE)
+			return;
+
+		Vector3f min = bounds.GetMin();
+		Vector3f max = bounds.GetMax();
+		float minX = min.GetX(), minY = min.GetY(), minZ = min.GetZ();
+		float maxX = max.GetX(), maxY = max.GetY(), maxZ = max.GetZ();
+
+		int top = 0;
+		m_stack[top++] = m_root;
+
+		while(top > 0)
+		{
+			int node = m_stack[--top];
+
+			if(!Overlaps(m_fat, node, minX, minY, minZ, maxX, maxY, maxZ))
+				continue;
+
+			if(IsLeaf(node))
+			{
+				if(Overlaps(m_tight, node, minX, minY, minZ, maxX, maxY, maxZ))
+					visitor.accept((T)m_data[node]);
+			}
+			else
+			{
+				top = Push(top, m_children1[node]);
+				top = Push(top, m_children2[node]);
+			}
+		}
+	}
+
+	//Visits every proxy whose box is within the sphere
+	@SuppressWarnings("unchecked")
+	public void Query(BoundingSphere sphere, Consumer<T> visitor)
+	{
+		if(m_root == NULL_NODE)
+			return;
+
+		Vector3f center = sphere.GetCenter();
+		float x = center.GetX(), y = center.GetY(), z = center.GetZ();
+		float radiusSq = sphere.GetRadius() * sphere.GetRadius();
+
+		int top = 0;
+		m_stack[top++] = m_root;
+
+		while(top > 0)
+		{
+			int node = m_stack[--top];
+
+			if(DistanceSq(m_fat, node, x, y, z) > radiusSq)
+				continue;
+
+			if(IsLeaf(node))
+			{
+				if(DistanceSq(m_tight, node, x, y, z) <= radiusSq)
+					visitor.accept((T)m_data[node]);
+			}
+			else
+			{
+				top = Push(top, m_children1[node]);
+				top = Push(top, m_children2[node]);
+			}
+		}
+	}
+
+	//Visits every proxy whose box the ray enters within maxDistance, in no particular order.
+	//The direction need not be normalized; distances are in multiples of its length.
+	@SuppressWarnings("unchecked")
+	public void Raycast(Vector3f origin, Vector3f direction, float maxDistance, Consumer<T> visitor)
+	{
+		if(m_root == NULL_NODE)
+			return;
+
+		float ox = origin.GetX(), oy = origin.GetY(), oz = origin.GetZ();
+		float dx = direction.GetX(), dy = direction.GetY(), dz = direction.GetZ();
+
+		int top = 0;
+		m_stack[top++] = m_root;
+
+		while(top > 0)
+		{
+			int node = m_stack[--top];
+
+			if(RayDistance(m_fat, node, ox, oy, oz, dx, dy, dz, maxDistance) < 0)
+				continue;
+
+			if(IsLeaf(node))
+			{
+				if(RayDistance(m_tight, node, ox, oy, oz, dx, dy, dz, maxDistance) >= 0)
+					visitor.accept((T)m_data[node]);
+			}
+			else
+			{
+				top = Push(top, m_children1[node]);
+				top = Push(top, m_children2[node]);
+			}
+		}
+	}
+
+	//Returns the proxy whose box the ray enters first, or NULL_NODE. Each hit shortens the ray, pruning the rest.
+	public int RaycastClosest(Vector3f origin, Vector3f direction, float maxDistance)
+	{
+		if(m_root == NULL_NODE)
+			return NULL_NODE;
+
+		float ox = origin.GetX(), oy = origin.GetY(), oz = origin.GetZ();
+		float dx = direction.GetX(), dy = direction.GetY(), dz = direction.GetZ();
+		int closest = NULL_NODE;
+
+		int top = 0;
+		m_stack[top++] = m_root;
+
+		while(top > 0)
+		{
+			int node = m_stack[--top];
+
+			if(RayDistance(m_fat, node, ox, oy, oz, dx, dy, dz, maxDistance) < 0)
+				continue;
+
+			if(IsLeaf(node))
+			{
+				float distance = RayDistance(m_tight, node, ox, oy, oz, dx, dy, dz, maxDistance);
+
+				if(distance >= 0)
+				{
+					closest = node;
+					maxDistance = distance;
+				}
+			}
+			else
+			{
+				top = Push(top, m_children1[node]);
+				top = Push(top, m_children2[node]);
+			}
+		}
+
+		return closest;
+	}
+
+	private int Push(int top, int node)
+	{
+		if(top == m_stack.length)
+			m_stack = Arrays.copyOf(m_stack, m_stack.length * 2);
+
+		m_stack[top] = node;
+
+		return top + 1;
+	}
+
+	private boolean IsLeaf(int node)
+	{
+		return m_children1[node] == NULL_NODE;
+	}
+
+	private void InsertLeaf(int leaf)
+	{
+		if(m_root == NULL_NODE)
+		{
+			m_root = leaf;
+			m_parents[leaf] = NULL_NODE;
+			return;
+		}
+
+		//Descend towards the sibling that minimizes the total area added to the tree
+		int lo = leaf * 6;
+		int index = m_root;
+
+		while(!IsLeaf(index))
+		{
+			int child1 = m_children1[index];
+			int child2 = m_children2[index];
+
+			float area = Area(m_fat, index * 6);
+			float combinedArea = UnionArea(m_fat, index * 6, m_fat, lo);
+
+			float cost = 2.0f * combinedArea;
+			float inheritanceCost = 2.0f * (combinedArea - area);
+
+			float cost1 = UnionArea(m_fat, child1 * 6, m_fat, lo) + inheritanceCost;
+			if(!IsLeaf(child1))
+				cost1 -= Area(m_fat, child1 * 6);
+
+			float cost2 = UnionArea(m_fat, child2 * 6, m_fat, lo) + inheritanceCost;
+			if(!IsLeaf(child2))
+				cost2 -= Area(m_fat, child2 * 6);
+
+			if(cost < cost1 && cost < cost2)
+				break;
+
+			index = cost1 < cost2 ? child1 : child2;
+		}
+
+		int sibling = index;
+		int oldParent = m_parents[sibling];
+		int newParent = AllocateNode();
+
+		m_parents[newParent] = oldParent;
+		m_data[newParent] = null;
+		Union(m_fat, leaf, sibling, newParent);
+		m_heights[newParent] = m_heights[sibling] + 1;
+		m_children1[newParent] = sibling;
+		m_children2[newParent] = leaf;
+		m_parents[sibling] = newParent;
+		m_parents[leaf] = newParent;
+
+		if(oldParent != NULL_NODE)
+		{
+			if(m_children1[oldParent] == sibling)
+				m_children1[oldParent] = newParent;
+			else
+				m_children2[oldParent] = newParent;
+		}
+		else
+			m_root = newParent;
+
+		Refit(m_parents[leaf]);
+	}
+
+	private void RemoveLeaf(int leaf)
+	{
+		if(leaf == m_root)
+		{
+			m_root = NULL_NODE;
+			return;
+		}
+
+		int parent = m_parents[leaf];
+		int grandParent = m_parents[parent];
+		int sibling = m_children1[parent] == leaf ? m_children2[parent] : m_children1[parent];
+
+		if(grandParent != NULL_NODE)
+		{
+			if(m_children1[grandParent] == parent)
+				m_children1[grandParent] = sibling;
+			else
+				m_children2[grandParent] = sibling;
+
+			m_parents[sibling] = grandParent;
+			FreeNode(parent);
+
+			Refit(grandParent);
+		}
+		else
+		{
+			m_root = sibling;
+			m_parents[sibling] = NULL_NODE;
+			FreeNode(parent);
+		}
+	}
+
+	//Walks from index to the root, rebalancing and recomputing heights and boxes
+	private void Refit(int index)
+	{
+		while(index != NULL_NODE)
+		{
+			index = Balance(index);
+
+			int child1 = m_children1[index];
+			int child2 = m_children2[index];
+
+			m_heights[index] = 1 + Math.max(m_heights[child1], m_heights[child2]);
+			Union(m_fat, child1, child2, index);
+
+			index = m_parents[index];
+		}
+	}
+
+	//Rotates a grandchild up if the subtree of index is unbalanced; returns the new root of the subtree
+	private int Balance(int a)
+	{
+		if(IsLeaf(a) || m_heights[a] < 2)
+			return a;
+
+		int b = m_children1[a];
+		int c = m_children2[a];
+		int balance = m_heights[c] - m_heights[b];
+
+		if(balance > 1)
+		{
+			int f = m_children1[c];
+			int g = m_children2[c];
+
+			m_children1[c] = a;
+			m_parents[c] = m_parents[a];
+			m_parents[a] = c;
+			ReplaceChild(m_parents[c], a, c);
+
+			if(m_heights[f] > m_heights[g])
+			{
+				m_children2[c] = f;
+				m_children2[a] = g;
+				m_parents[g] = a;
+				Union(m_fat, b, g, a);
+				Union(m_fat, a, f, c);
+				m_heights[a] = 1 + Math.max(m_heights[b], m_heights[g]);
+				m_heights[c] = 1 + Math.max(m_heights[a], m_heights[f]);
+			}
+			else
+			{
+				m_children2[c] = g;
+				m_children2[a] = f;
+				m_parents[f] = a;
+				Union(m_fat, b, f, a);
+				Union(m_fat, a, g, c);
+				m_heights[a] = 1 + Math.max(m_heights[b], m_heights[f]);
+				m_heights[c] = 1 + Math.max(m_heights[a], m_heights[g]);
+			}
+
+			return c;
+		}
+
+		if(balance < -1)
+		{
+			int d = m_children1[b];
+			int e = m_children2[b];
+
+			m_children1[b] = a;
+			m_parents[b] = m_parents[a];
+			m_parents[a] = b;
+			ReplaceChild(m_parents[b], a, b);
+
+			if(m_heights[d] > m_heights[e])
+			{
+				m_children2[b] = d;
+				m_children1[a] = e;
+				m_parents[e] = a;
+				Union(m_fat, c, e, a);
+				Union(m_fat, a, d, b);
+				m_heights[a] = 1 + Math.max(m_heights[c], m_heights[e]);
+				m_heights[b] = 1 + Math.max(m_heights[a], m_heights[d]);
+			}
+			else
+			{
+				m_children2[b] = e;
+				m_children1[a] = d;
+				m_parents[d] = a;
+				Union(m_fat, c, d, a);
+				Union(m_fat, a, e, b);
+				m_heights[a] = 1 + Math.max(m_heights[c], m_heights[d]);
+				m_heights[b] = 1 + Math.max(m_heights[a], m_heights[e]);
+			}
+
+			return b;
+		}
+
+		return a;
+	}
+
+	private void ReplaceChild(int parent, int oldChild, int newChild)
+	{
+		if(parent == NULL_NODE)
+			m_root = newChild;
+		else if(m_children1[parent] == oldChild)
+			m_children1[parent] = newChild;
+		else
+			m_children2[parent] = newChild;
+	}
+
+	private int AllocateNode()
+	{
+		if(m_freeList == NULL_NODE)
+			Grow(m_parents.length * 2);
+
+		int node = m_freeList;
+		m_freeList = m_parents[node];
+
+		m_parents[node] = NULL_NODE;
+		m_children1[node] = NULL_NODE;
+		m_children2[node] = NULL_NODE;
+		m_heights[node] = 0;
+
+		return node;
+	}
+
+	//Free nodes are chained through m_parents
+	private void FreeNode(int node)
+	{
+		m_parents[node] = m_freeList;
+		m_heights[node] = -1;
+		m_data[node] = null;
+		m_freeList = node;
+	}
+
+	private void Grow(int capacity)
+	{
+		int oldCapacity = m_parents.length;
+
+		m_fat = Arrays.copyOf(m_fat, capacity * 6);
+		m_tight = Arrays.copyOf(m_tight, capacity * 6);
+		m_parents = Arrays.copyOf(m_parents, capacity);
+		m_children1 = Arrays.copyOf(m_children1, capacity);
+		m_children2 = Arrays.copyOf(m_children2, capacity);
+		m_heights = Arrays.copyOf(m_heights, capacity);
+		m_data = Arrays.copyOf(m_data, capacity);
+
+		for(int i = oldCapacity; i < capacity - 1; i++)
+		{
+			m_parents[i] = i + 1;
+			m_heights[i] = -1;
+		}
+
+		m_parents[capacity - 1] = m_freeList;
+		m_heights[capacity - 1] = -1;
+		m_freeList = oldCapacity;
+	}
+
+	private void SetFatBox(int node)
+	{
+		int o = node * 6;
+
+		m_fat[o    ] = m_tight[o    ] - m_margin;
+		m_fat[o + 1] = m_tight[o + 1] - m_margin;
+		m_fat[o + 2] = m_tight[o + 2] - m_margin;
+		m_fat[o + 3] = m_tight[o + 3] + m_margin;
+		m_fat[o + 4] = m_tight[o + 4] + m_margin;
+		m_fat[o + 5] = m_tight[o + 5] + m_margin;
+	}
+
+	private static void SetBox(float[] boxes, int node, AABB bounds)
+	{
+		int o = node * 6;
+		Vector3f min = bounds.GetMin();
+		Vector3f max = bounds.GetMax();
+
+		boxes[o    ] = min.GetX();
+		boxes[o + 1] = min.GetY();
+		boxes[o + 2] = min.GetZ();
+		boxes[o + 3] = max.GetX();
+		boxes[o + 4] = max.GetY();
+		boxes[o + 5] = max.GetZ();
+	}
+
+	private static void Union(float[] boxes, int a, int b, int dest)
+	{
+		int ao = a * 6, bo = b * 6, o = dest * 6;
+
+		boxes[o    ] = Math.min(boxes[ao    ], boxes[bo    ]);
+		boxes[o + 1] = Math.min(boxes[ao + 1], boxes[bo + 1]);
+		boxes[o + 2] = Math.min(boxes[ao + 2], boxes[bo + 2]);
+		boxes[o + 3] = Math.max(boxes[ao + 3], boxes[bo + 3]);
+		boxes[o + 4] = Math.max(boxes[ao + 4], boxes[bo + 4]);
+		boxes[o + 5] = Math.max(boxes[ao + 5], boxes[bo + 5]);
+	}
+
+	//Half the surface area, which is all the heuristic needs
+	private static float Area(float[] b, int o)
+	{
+		float x = b[o + 3] - b[o];
+		float y = b[o + 4] - b[o + 1];
+		float z = b[o + 5] - b[o + 2];
+
+		return x * y + y * z + z * x;
+	}
+
+	private static float UnionArea(float[] a, int ao, float[] b, int bo)
+	{
+		float x = Math.max(a[ao + 3], b[bo + 3]) - Math.min(a[ao    ], b[bo    ]);
+		float y = Math.max(a[ao + 4], b[bo + 4]) - Math.min(a[ao + 1], b[bo + 1]);
+		float z = Math.max(a[ao + 5], b[bo + 5]) - Math.min(a[ao + 2], b[bo + 2]);
+
+		return x * y + y * z + z * x;
+	}
+
+	private static boolean Contains(float[] outer, int a, float[] inner, int b)
+	{
+		int ao = a * 6, bo = b * 6;
+
+		return outer[ao    ] <= inner[bo    ] && outer[ao + 1] <= inner[bo + 1] && outer[ao + 2] <= inner[bo + 2] &&
+		       outer[ao + 3] >= inner[bo + 3] && outer[ao + 4] >= inner[bo + 4] && outer[ao + 5] >= inner[bo + 5];
+	}
+
+	private static boolean Overlaps(float[] boxes, int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		int o = node * 6;
+
+		return boxes[o    ] <= maxX && boxes[o + 3] >= minX &&
+		       boxes[o + 1] <= maxY && boxes[o + 4] >= minY &&
+		       boxes[o + 2] <= maxZ && boxes[o + 5] >= minZ;
+	}
+
+	private static float DistanceSq(float[] boxes, int node, float x, float y, float z)
+	{
+		int o = node * 6;
+
+		float dx = Math.max(Math.max(boxes[o    ] - x, 0), x - boxes[o + 3]);
+		float dy = Math.max(Math.max(boxes[o + 1] - y, 0), y - boxes[o + 4]);
+		float dz = Math.max(Math.max(boxes[o + 2] - z, 0), z - boxes[o + 5]);
+
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	//Slab test; returns the distance along the ray at which it enters the box (0 if it starts inside), or -1 on a miss
+	private static float RayDistance(float[] boxes, int node, float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance)
+	{
+		int o = node * 6;
+		float near = 0;
+		float far = maxDistance;
+
+		for(int axis = 0; axis < 3; axis++)
+		{
+			float origin = axis == 0 ? ox : (axis == 1 ? oy : oz);
+			float direction = axis == 0 ? dx : (axis == 1 ? dy : dz);
+			float min = boxes[o + axis];
+			float max = boxes[o + axis + 3];
+
+			if(direction == 0)
+			{
+				if(origin < min || origin > max)
+					return -1;
+
+				continue;
+			}
+
+			float inverse = 1.0f / direction;
+			float t1 = (min - origin) * inverse;
+			float t2 = (max - origin) * inverse;
+
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+
+			if(near > far)
+				return -1;
+		}
+
+		return near;
+	}
+
+	//Leaves have height 0, so this is the length of the longest root-to-leaf path
+	public int GetHeight()
+	{
+		return m_root == NULL_NODE ? 0 : m_heights[m_root];
+	}
+
+	public int GetNumProxies()
+	{
+		return m_numProxies;
+	}
+
+	public void SetMargin(float margin)
+	{
+		this.m_margin = margin;
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+//Per-phase timings of the main loop in fixed-memory histograms. The engine records into the current interval and
+//calls Roll about once a second, which publishes the interval for JMX and GetSummary and appends it to the dump file.
+public class FrameMetrics implements FrameMetricsMXBean
+{
+	public static final int INPUT  = 0;
+	public static final int UPDATE = 1;
+	public static final int RENDER = 2;
+	public static final int SWAP   = 3;
+	public static final int FRAME  = 4;
+	public static final int NUM_PHASES = 5;
+
+	public static final String[] PHASE_NAMES = { "input", "update", "render", "swap", "frame" };
+
+	public static final int FORMAT_CSV  = 0;
+	public static final int FORMAT_JSON = 1;
+
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	//Immutable statistics of one phase over one interval
+	public static class PhaseStats
+	{
+		private final long   m_count;
+		private final double m_p50;
+		private final double m_p99;
+		private final double m_max;
+		private final double m_mean;
+		private final long   m_overBudget;
+
+		private PhaseStats(LatencyHistogram histogram, long budgetNanos)
+		{
+			this.m_count = histogram.GetCount();
+			this.m_p50 = histogram.GetPercentile(0.5) / NANOS_PER_MILLI;
+			this.m_p99 = histogram.GetPercentile(0.99) / NANOS_PER_MILLI;
+			this.m_max = histogram.GetMax() / NANOS_PER_MILLI;
+			this.m_mean = histogram.GetMean() / NANOS_PER_MILLI;
+			this.m_overBudget = budgetNanos > 0 ? histogram.GetCountAbove(budgetNanos) : 0;
+		}
+
+		//JMX naming, so the MXBean maps these to composite data items
+		public long getCount()          { return m_count; }
+		public double getP50Millis()    { return m_p50; }
+		public double getP99Millis()    { return m_p99; }
+		public double getMaxMillis()    { return m_max; }
+		public double getMeanMillis()   { return m_mean; }
+		public long getOverBudget()     { return m_overBudget; }
+	}
+
+	private LatencyHistogram[] m_histograms;
+	private PhaseStats[]       m_published;
+	private long               m_budgetNanos;
+	private long               m_intervalStart;
+	private double             m_intervalSeconds;
+
+	private PrintWriter        m_dump;
+	private int                m_dumpFormat;
+
+	public FrameMetrics()
+	{
+		m_histograms = new LatencyHistogram[NUM_PHASES];
+		m_published = new PhaseStats[NUM_PHASES];
+
+		for(int i = 0; i < NUM_PHASES; i++)
+		{
+			m_histograms[i] = new LatencyHistogram();
+			m_published[i] = new PhaseStats(m_histograms[i], 0);
+		}
+
+		m_budgetNanos = 0;
+		m_intervalStart = System.nanoTime();
+		m_intervalSeconds = 0;
+	}
+
+	//Phases may be recorded from different threads, e.g. simulation and render in threaded mode
+	public synchronized void Record(int phase, long nanos)
+	{
+		m_histograms[phase].Record(nanos);
+	}
+
+	public synchronized void Roll()
+	{
+		long now = System.nanoTime();
+		m_intervalSeconds = (now - m_intervalStart) / 1000000000.0;
+		m_intervalStart = now;
+
+		for(int i = 0; i < NUM_PHASES; i++)
+		{
+			m_published[i] = new PhaseStats(m_histograms[i], m_budgetNanos);
+			m_histograms[i].Reset();
+		}
+
+		if(m_dump != null)
+			WriteDump();
+	}
+
+	private void WriteDump()
+	{
+		long time = System.currentTimeMillis();
+
+		if(m_dumpFormat == FORMAT_CSV)
+		{
+			for(int i = 0; i < NUM_PHASES; i++)
+			{
+				PhaseStats stats = m_published[i];
+				m_dump.println(String.format(Locale.ROOT, "%d,%s,%d,%.3f,%.3f,%.3f,%.3f,%d", time, PHASE_NAMES[i], stats.m_count,
+				                             stats.m_p50, stats.m_p99, stats.m_max, stats.m_mean, stats.m_overBudget));
+			}
+		}
+		else
+		{
+			StringBuilder line = new StringBuilder();
+			line.append(String.format(Locale.ROOT, "{\"time\":%d,\"interval\":%.3f,\"budget\":%.3f", time, m_intervalSeconds, getBudgetMillis()));
+
+			for(int i = 0; i < NUM_PHASES; i++)
+			{
+				PhaseStats stats = m_published[i];
+				line.append(String.format(Locale.ROOT, ",\"%s\":{\"count\":%d,\"p50\":%.3f,\"p99\":%.3f,\"max\":%.3f,\"mean\":%.3f,\"overBudget\":%d}",
+				                          PHASE_NAMES[i], stats.m_count, stats.m_p50, stats.m_p99, stats.m_max, stats.m_mean, stats.m_overBudget));
+			}
+
+			m_dump.println(line.append('}'));
+		}
+
+		m_dump.flush();
+	}
+
+	//Appends every interval to fileName as CSV rows (one per phase) or JSON lines; null stops dumping. If the file
+	//can't be opened the error is printed and dumping stays off.
+	public synchronized void SetDump(String fileName, int format)
+	{
+		if(m_dump != null)
+			m_dump.close();
+
+		m_dump = null;
+		m_dumpFormat = format;
+
+		if(fileName == null)
+			return;
+
+		try
+		{
+			boolean isNew = !new File(fileName).exists() || new File(fileName).length() == 0;
+			m_dump = new PrintWriter(new FileWriter(fileName, true));
+
+			if(isNew && format == FORMAT_CSV)
+				m_dump.println("time,phase,count,p50_ms,p99_ms,max_ms,mean_ms,over_budget");
+		}
+		catch(Exception e)
+		{
+			//Like the MBean, dumping is optional; the game runs on without it
+			e.printStackTrace();
+			m_dump = null;
+		}
+	}
+
+	//Makes the metrics visible to JConsole and other JMX clients as com.base.engine:type=FrameMetrics
+	public void RegisterMBean()
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.base.engine:type=FrameMetrics"));
+		}
+		catch(Exception e)
+		{
+			//Monitoring is optional; the game runs on without it
+			e.printStackTrace();
+		}
+	}
+
+	//One line for the console covering the last interval
+	public synchronized String GetSummary()
+	{
+		StringBuilder result = new StringBuilder();
+
+		for(int i = NUM_PHASES - 1; i >= 0; i--)
+		{
+			PhaseStats stats = m_published[i];
+
+			if(stats.m_count == 0)
+				continue;
+
+			if(result.length() > 0)
+				result.append(", ");
+
+			result.append(String.format(Locale.ROOT, "%s p50 %.2f p99 %.2f max %.2f ms", PHASE_NAMES[i], stats.m_p50, stats.m_p99, stats.m_max));
+
+			if(i == FRAME && m_budgetNanos > 0)
+				result.append(" (").append(stats.m_overBudget).append(" over budget)");
+		}
+
+		return result.toString();
+	}
+
+	public synchronized PhaseStats GetStats(int phase)
+	{
+		return m_published[phase];
+	}
+
+	//Durations above this count as over budget
+	public synchronized void SetBudget(double seconds)
+	{
+		this.m_budgetNanos = (long)(seconds * 1000000000.0);
+	}
+
+	@Override public PhaseStats getInput()          { return GetStats(INPUT); }
+	@Override public PhaseStats getUpdate()         { return GetStats(UPDATE); }
+	@Override public PhaseStats getRender()         { return GetStats(RENDER); }
+	@Override public PhaseStats getSwap()           { return GetStats(SWAP); }
+	@Override public PhaseStats getFrame()          { return GetStats(FRAME); }
+	@Override public synchronized double getBudgetMillis()    { return m_budgetNanos / NANOS_PER_MILLI; }
+	@Override public synchronized double getIntervalSeconds() { return m_intervalSeconds; }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+//Waits out the time between frames and measures how evenly frames actually arrive. Parking alone can wake up a
+//millisecond or more late, so the low-latency mode parks until shortly before the deadline and yields through the rest.
+public class FramePacer
+{
+	public static final int POWER_SAVING = 0;
+	public static final int LOW_LATENCY  = 1;
+	public static final int UNCAPPED     = 2;
+
+	private static final long DEFAULT_SPIN_NANOS = 1000000L;
+
+	private int  m_mode;
+	private long m_spinNanos;
+
+	//Frame interval statistics since the last ResetStats
+	private long   m_lastFrame;
+	private int    m_numIntervals;
+	private double m_sum;
+	private double m_sumSquared;
+	private long   m_minInterval;
+	private long   m_maxInterval;
+
+	public FramePacer(int mode)
+	{
+		this.m_mode = mode;
+		this.m_spinNanos = DEFAULT_SPIN_NANOS;
+		this.m_lastFrame = -1;
+		ResetStats();
+	}
+
+	//Returns once deadline, a System.nanoTime value, has passed; immediately when uncapped
+	public void WaitUntil(long deadline)
+	{
+		if(m_mode == UNCAPPED)
+			return;
+
+		long parkUntil = m_mode == LOW_LATENCY ? deadline - m_spinNanos : deadline;
+		long remaining;
+
+		while((remaining = parkUntil - System.nanoTime()) > 0)
+			LockSupport.parkNanos(remaining);
+
+		if(m_mode == LOW_LATENCY)
+		{
+			while(System.nanoTime() - deadline < 0)
+				Thread.yield();
+		}
+	}
+
+	//Call once per presented frame
+	public void OnFrame()
+	{
+		long now = System.nanoTime();
+
+		if(m_lastFrame >= 0)
+		{
+			long interval = now - m_lastFrame;
+
+			m_numIntervals++;
+			m_sum += interval;
+			m_sumSquared += (double)interval * interval;
+			m_minInterval = Math.min(m_minInterval, interval);
+			m_maxInterval = Math.max(m_maxInterval, interval);
+		}
+
+		m_lastFrame = now;
+	}
+
+	public void ResetStats()
+	{
+		m_numIntervals = 0;
+		m_sum = 0;
+		m_sumSquared = 0;
+		m_minInterval = Long.MAX_VALUE;
+		m_maxInterval = 0;
+	}
+
+	public double GetMeanFrameTime()
+	{
+		return m_numIntervals == 0 ? 0 : m_sum / m_numIntervals / 1000000.0;
+	}
+
+	//Standard deviation of the frame time, in milliseconds
+	public double GetJitter()
+	{
+		if(m_numIntervals == 0)
+			return 0;
+
+		double mean = m_sum / m_numIntervals;
+		double variance = Math.max(0, m_sumSquared / m_numIntervals - mean * mean);
+
+		return Math.sqrt(variance) / 1000000.0;
+	}
+
+	public double GetMinFrameTime() { return m_numIntervals == 0 ? 0 : m_minInterval / 1000000.0; }
+	public double GetMaxFrameTime() { return m_maxInterval / 1000000.0; }
+
+	public String GetReport()
+	{
+		return String.format("frame time %.3f ms, jitter %.3f ms, min %.3f ms, max %.3f ms",
+		                     GetMeanFrameTime(), GetJitter(), GetMinFrameTime(), GetMaxFrameTime());
+	}
+
+	public int GetMode()                   { return m_mode; }
+	public void SetMode(int mode)          { this.m_mode = mode; }
+
+	//How long before the deadline low-latency mode stops parking; raise it on systems with coarse timers
+	public void SetSpinTime(long nanos)    { this.m_spinNanos = nanos; }
+}
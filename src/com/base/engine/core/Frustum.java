@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+public class Frustum
+{
+	public static final int OUTSIDE   = 0;
+	public static final int INTERSECT = 1;
+	public static final int INSIDE    = 2;
+
+	public static final int LEFT   = 0;
+	public static final int RIGHT  = 1;
+	public static final int BOTTOM = 2;
+	public static final int TOP    = 3;
+	public static final int NEAR   = 4;
+	public static final int FAR    = 5;
+
+	//Six planes as (a, b, c, d) with inward-facing unit normals; a point is inside a plane when a*x + b*y + c*z + d >= 0
+	private float[] m_planes;
+
+	public Frustum()
+	{
+		m_planes = new float[24];
+	}
+
+	//Gribb/Hartmann extraction: each clip plane is the fourth row of the matrix plus or minus one of the others.
+	//Works on any projection * view matrix, with OpenGL's -w..w depth range
+	public Frustum InitFromMatrix(Matrix4f viewProjection)
+	{
+		float[] m = viewProjection.GetData();
+
+		SetPlane(LEFT,   m[12] + m[0], m[13] + m[1], m[14] + m[ 2], m[15] + m[ 3]);
+		SetPlane(RIGHT,  m[12] - m[0], m[13] - m[1], m[14] - m[ 2], m[15] - m[ 3]);
+		SetPlane(BOTTOM, m[12] + m[4], m[13] + m[5], m[14] + m[ 6], m[15] + m[ 7]);
+		SetPlane(TOP,    m[12] - m[4], m[13] - m[5], m[14] - m[ 6], m[15] - m[ 7]);
+		SetPlane(NEAR,   m[12] + m[8], m[13] + m[9], m[14] + m[10], m[15] + m[11]);
+		SetPlane(FAR,    m[12] - m[8], m[13] - m[9], m[14] - m[10], m[15] - m[11]);
+
+		return this;
+	}
+
+	private void SetPlane(int plane, float a, float b, float c, float d)
+	{
+		float invLength = 1.0f / (float)Math.sqrt(a * a + b * b + c * c);
+		int o = plane * 4;
+
+		m_planes[o    ] = a * invLength;
+		m_planes[o + 1] = b * invLength;
+		m_planes[o + 2] = c * invLength;
+		m_planes[o + 3] = d * invLength;
+	}
+
+	public int TestPoint(float x, float y, float z)
+	{
+		for(int i = 0; i < 24; i += 4)
+			if(m_planes[i] * x + m_planes[i + 1] * y + m_planes[i + 2] * z + m_planes[i + 3] < 0)
+				return OUTSIDE;
+
+		return INSIDE;
+	}
+
+	public int TestSphere(float x, float y, float z, float radius)
+	{
+		int result = INSIDE;
+
+		for(int i = 0; i < 24; i += 4)
+		{
+			float distance = m_planes[i] * x + m_planes[i + 1] * y + m_planes[i + 2] * z + m_planes[i + 3];
+
+			if(distance < -radius)
+				return OUTSIDE;
+			if(distance < radius)
+				result = INTERSECT;
+		}
+
+		return result;
+	}
+
+	public int TestSphere(BoundingSphere sphere)
+	{
+		Vector3f center = sphere.GetCenter();
+
+		return TestSphere(center.GetX(), center.GetY(), center.GetZ(), sphere.GetRadius());
+	}
+
+	//Tests the box corner furthest along each plane normal (the "p-vertex") for rejection, and the nearest corner
+	//(the "n-vertex") to tell containment from intersection
+	public int TestAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		int result = INSIDE;
+
+		for(int i = 0; i < 24; i += 4)
+		{
+			float a = m_planes[i];
+			float b = m_planes[i + 1];
+			float c = m_planes[i + 2];
+			float d = m_planes[i + 3];
+
+			float far  = a * (a >= 0 ? maxX : minX) + b * (b >= 0 ? maxY : minY) + c * (c >= 0 ? maxZ : minZ) + d;
+
+			if(far < 0)
+				return OUTSIDE;
+
+			float near = a * (a >= 0 ? minX : maxX) + b * (b >= 0 ? minY : maxY) + c * (c >= 0 ? minZ : maxZ) + d;
+
+			if(near < 0)
+				result = INTERSECT;
+		}
+
+		return result;
+	}
+
+	public int TestAABB(AABB box)
+	{
+		Vector3f min = box.GetMin();
+		Vector3f max = box.GetMax();
+
+		return TestAABB(min.GetX(), min.GetY(), min.GetZ(), max.GetX(), max.GetY(), max.GetZ());
+	}
+
+	//Batch form over packed (x, y, z, radius) spheres; writes one OUTSIDE/INTERSECT/INSIDE per sphere into results
+	public void TestSpheres(float[] spheres, int offset, int count, int[] results)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			int o = offset + i * 4;
+			results[i] = TestSphere(spheres[o], spheres[o + 1], spheres[o + 2], spheres[o + 3]);
+		}
+	}
+
+	//Batch form over packed (minX, minY, minZ, maxX, maxY, maxZ) boxes
+	public void TestAABBs(float[] boxes, int offset, int count, int[] results)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			int o = offset + i * 6;
+			results[i] = TestAABB(boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3], boxes[o + 4], boxes[o + 5]);
+		}
+	}
+
+	public void TestSpheres(BoundingSphere[] spheres, int count, int[] results)
+	{
+		for(int i = 0; i < count; i++)
+			results[i] = TestSphere(spheres[i]);
+	}
+
+	public void TestAABBs(AABB[] boxes, int count, int[] results)
+	{
+		for(int i = 0; i < count; i++)
+			results[i] = TestAABB(boxes[i]);
+	}
+
+	public Frustum Set(Frustum r)
+	{
+		System.arraycopy(r.m_planes, 0, m_planes, 0, 24);
+
+		return this;
+	}
+
+	public float[] GetPlanes()
+	{
+		return m_planes;
+	}
+}
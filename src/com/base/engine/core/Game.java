@@ -16,7 +16,10 @@
 
 package com.base.engine.core;
 
+import com.base.engine.components.Camera;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.RenderingEngine;
+import com.base.engine.rendering.StaticBatcher;
 
 public abstract class Game
 {
@@ -31,12 +34,45 @@ public abstract class Game
 
 	public void Update(float delta)
 	{
+		UpdateSchedulerFocus();
 		GetRootObject().UpdateAll(delta);
 	}
 
-	public void Render(RenderingEngine renderingEngine)
+	//Update LOD is measured from the main camera, when there is one
+	private void UpdateSchedulerFocus()
 	{
-		renderingEngine.Render(GetRootObject());
+		UpdateScheduler scheduler = GetRootObject().GetUpdateScheduler();
+		CoreEngine engine = GetRootObject().GetEngine();
+		Camera camera = engine == null || engine.GetRenderingEngine() == null ? null : engine.GetRenderingEngine().GetMainCamera();
+
+		if(camera == null)
+		{
+			scheduler.ClearFocus();
+			return;
+		}
+
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+		scheduler.SetFocus(camera.GetTransform().GetTransformedPos(scratch.NextVector3f()));
+		scratch.Pop();
+	}
+
+	//alpha is how far the frame lies between the previous tick and the latest one
+	public void Render(RenderingEngine renderingEngine, float alpha)
+	{
+		renderingEngine.Render(GetRootObject(), alpha);
+	}
+
+	//Threaded rendering's counterpart of Render, called on the simulation thread
+	public void Snapshot(RenderingEngine renderingEngine, RenderSnapshot snapshot)
+	{
+		renderingEngine.BuildSnapshot(GetRootObject(), snapshot);
+	}
+
+	//Called by the engine once Init has built the scene
+	public void BuildStaticBatches()
+	{
+		StaticBatcher.Build(GetRootObject());
 	}
 
 	public void AddObject(GameObject object)
@@ -53,4 +89,8 @@ public abstract class Game
 	}
 
 	public void SetEngine(CoreEngine engine) { GetRootObject().SetEngine(engine); }
+
+	public void SetParallelUpdate(boolean parallelUpdate) { GetRootObject().SetParallelUpdate(parallelUpdate); }
+
+	public UpdateScheduler GetUpdateScheduler() { return GetRootObject().GetUpdateScheduler(); }
 }
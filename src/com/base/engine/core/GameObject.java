@@ -17,10 +17,13 @@
 package com.base.engine.core;
 
 import com.base.engine.components.GameComponent;
+import com.base.engine.rendering.RenderSnapshot;
 import com.base.engine.rendering.RenderingEngine;
 import com.base.engine.rendering.Shader;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class GameObject
 {
@@ -28,6 +31,16 @@ public class GameObject
 	private ArrayList<GameComponent> m_components;
 	private Transform m_transform;
 	private CoreEngine m_engine;
+	private GameObject m_parent;
+	private GameObjectPool m_pool;
+	private boolean m_inPool;
+	private boolean m_static;
+	private boolean m_destroyed;
+
+	//Depth-first flattening of this subtree into per-hook lists, rebuilt lazily after the hierarchy changes
+	private ComponentRegistry m_traversal;
+	private boolean           m_traversalValid;
+	private boolean           m_parallelUpdate;
 
 	public GameObject()
 	{
@@ -35,13 +48,17 @@ public class GameObject
 		m_components = new ArrayList<GameComponent>();
 		m_transform = new Transform();
 		m_engine = null;
+		m_parent = null;
+		m_traversalValid = false;
 	}
 
 	public GameObject AddChild(GameObject child)
 	{
 		m_children.add(child);
-		child.SetEngine(m_engine);
+		child.m_parent = this;
 		child.GetTransform().SetParent(m_transform);
+		child.SetEngine(m_engine);
+		InvalidateTraversal();
 		
 		return this;
 	}
@@ -50,38 +67,152 @@ public class GameObject
 	{
 		m_components.add(component);
 		component.SetParent(this);
+		InvalidateTraversal();
+
+		if(m_engine != null)
+			component.AddToEngine(m_engine);
 
 		return this;
 	}
 
-	public void InputAll(float delta)
+	//Takes effect immediately. From inside Input/Update/Render, queue it on CoreEngine.GetCommandBuffer() instead;
+	//the running pass would otherwise still visit the removed objects this frame.
+	public GameObject RemoveChild(GameObject child)
 	{
-		Input(delta);
+		if(!m_children.remove(child))
+			return this;
+
+		child.m_parent = null;
+		child.GetTransform().SetParent(null);
+		child.SetEngine(null);
+		InvalidateTraversal();
 
-		for(GameObject child : m_children)
-			child.InputAll(delta);
+		return this;
 	}
 
-	public void UpdateAll(float delta)
+	public GameObject RemoveComponent(GameComponent component)
+	{
+		if(!m_components.remove(component))
+			return this;
+
+		if(m_engine != null)
+			component.RemoveFromEngine(m_engine);
+
+		InvalidateTraversal();
+
+		return this;
+	}
+
+	//Detaches this object and returns it to the pool it was acquired from, or, if it isn't pooled, marks everything
+	//below it destroyed and releases their transforms. Pooled objects keep their children and components for reuse,
+	//and pooled descendants of a destroyed object go back to their own pools. Destroying an object again, e.g. a
+	//projectile hitting two things in one tick, or destroying a child after its parent, does nothing.
+	public void Destroy()
+	{
+		if(m_destroyed)
+			return;
+
+		if(m_parent != null)
+			m_parent.RemoveChild(this);
+		else
+			SetEngine(null);
+
+		if(m_pool != null)
+		{
+			m_pool.Release(this);
+			return;
+		}
+
+		m_destroyed = true;
+
+		ArrayList<GameObject> stack = new ArrayList<GameObject>();
+		stack.add(this);
+
+		while(!stack.isEmpty())
+		{
+			GameObject object = stack.remove(stack.size() - 1);
+
+			//Pooled children are detached while their parent's transform is still live
+			for(int i = object.m_children.size() - 1; i >= 0; i--)
+			{
+				GameObject child = object.m_children.get(i);
+
+				if(child.m_pool != null)
+				{
+					child.Destroy();
+				}
+				else
+				{
+					child.m_destroyed = true;
+					stack.add(child);
+				}
+			}
+
+			object.m_transform.Release();
+		}
+	}
+
+	public void InputAll(float delta)
 	{
-		Update(delta);
+		UpdateTraversal();
+		m_traversal.Input(delta);
+	}
 
-		for(GameObject child : m_children)
-			child.UpdateAll(delta);
+	public void UpdateAll(float delta)
+	{
+		UpdateTraversal();
+		m_traversal.Update(delta);
 	}
 
 	public void RenderAll(Shader shader, RenderingEngine renderingEngine)
 	{
-		Render(shader, renderingEngine);
+		UpdateTraversal();
+		m_traversal.Render(shader, renderingEngine);
+	}
 
-		for(GameObject child : m_children)
-			child.RenderAll(shader, renderingEngine);
+	public void SnapshotAll(RenderSnapshot snapshot, RenderingEngine renderingEngine)
+	{
+		UpdateTraversal();
+		m_traversal.Snapshot(snapshot, renderingEngine);
 	}
 
-	public void Input(float delta)
+	//Every ancestor's flattened list contains this object, so all of them go stale
+	private void InvalidateTraversal()
 	{
-		m_transform.Update();
+		for(GameObject object = this; object != null; object = object.m_parent)
+			object.m_traversalValid = false;
+	}
+
+	private void UpdateTraversal()
+	{
+		if(m_traversalValid)
+			return;
+
+		if(m_traversal == null)
+			m_traversal = new ComponentRegistry();
+
+		m_traversal.SetParallel(m_parallelUpdate);
+
+		m_traversal.Clear();
+
+		ArrayList<GameObject> stack = new ArrayList<GameObject>();
+		stack.add(this);
 
+		while(!stack.isEmpty())
+		{
+			GameObject object = stack.remove(stack.size() - 1);
+
+			m_traversal.Add(object, object.m_components);
+
+			for(int i = object.m_children.size() - 1; i >= 0; i--)
+				stack.add(object.m_children.get(i));
+		}
+
+		m_traversalValid = true;
+	}
+
+	public void Input(float delta)
+	{
 		for(GameComponent component : m_components)
 			component.Input(delta);
 	}
@@ -98,14 +229,52 @@ public class GameObject
 			component.Render(shader, renderingEngine);
 	}
 
+	//Calls action on every object below this one, parents before children, without allocating. Walks the cached
+	//flattened hierarchy, so objects attached by action itself are only seen by later calls.
+	public void ForEachDescendant(Consumer<GameObject> action)
+	{
+		UpdateTraversal();
+
+		ComponentRegistry traversal = m_traversal;
+		int numObjects = traversal.GetNumObjects();
+
+		for(int i = 1; i < numObjects; i++)
+			action.accept(traversal.GetObject(i));
+	}
+
+	//This object and everything below it, parents before children. The stream splits over the cached flattened
+	//hierarchy, so it can be made parallel; don't change the hierarchy while it is being consumed.
+	public Stream<GameObject> StreamAttached()
+	{
+		UpdateTraversal();
+
+		return m_traversal.StreamObjects();
+	}
+
+	//Children before their parent, as this has always returned. Prefer ForEachDescendant, SceneIterator or
+	//StreamAttached for per-frame queries; this builds a new list on every call.
 	public ArrayList<GameObject> GetAllAttached()
 	{
 		ArrayList<GameObject> result = new ArrayList<GameObject>();
+		ArrayList<GameObject> stack = new ArrayList<GameObject>();
 
-		for(GameObject child : m_children)
-			result.addAll(child.GetAllAttached());
+		stack.add(this);
+
+		//Parent-first with the last child first, reversed below, is children-first with the first child first
+		while(!stack.isEmpty())
+		{
+			GameObject object = stack.remove(stack.size() - 1);
+			result.add(object);
+			stack.addAll(object.m_children);
+		}
+
+		for(int i = 0, j = result.size() - 1; i < j; i++, j--)
+		{
+			GameObject object = result.get(i);
+			result.set(i, result.get(j));
+			result.set(j, object);
+		}
 
-		result.add(this);
 		return result;
 	}
 
@@ -114,14 +283,108 @@ public class GameObject
 		return m_transform;
 	}
 
+	//Lets UpdateAll on this object run UPDATE_PARALLEL components across worker threads
+	public void SetParallelUpdate(boolean parallelUpdate)
+	{
+		this.m_parallelUpdate = parallelUpdate;
+
+		if(m_traversal != null)
+			m_traversal.SetParallel(parallelUpdate);
+	}
+
+	//Tick rates and update LOD for UpdateAll on this object
+	public UpdateScheduler GetUpdateScheduler()
+	{
+		UpdateTraversal();
+
+		return m_traversal.GetScheduler();
+	}
+
+	public GameObject GetParent()
+	{
+		return m_parent;
+	}
+
+	public int GetNumComponents()
+	{
+		return m_components.size();
+	}
+
+	public GameComponent GetComponent(int index)
+	{
+		return m_components.get(index);
+	}
+
+	//Marks this object and everything below it as never moving once loaded, so its meshes can be batched
+	public GameObject SetStatic(boolean isStatic)
+	{
+		this.m_static = isStatic;
+
+		return this;
+	}
+
+	public boolean IsStatic()
+	{
+		for(GameObject object = this; object != null; object = object.m_parent)
+			if(object.m_static)
+				return true;
+
+		return false;
+	}
+
+	public boolean IsDestroyed()
+	{
+		return m_destroyed;
+	}
+
+	public CoreEngine GetEngine()
+	{
+		return m_engine;
+	}
+
+	void SetPool(GameObjectPool pool)
+	{
+		this.m_pool = pool;
+	}
+
+	//Owned by GameObjectPool: whether this sits on its free list
+	boolean IsInPool()
+	{
+		return m_inPool;
+	}
+
+	void SetInPool(boolean inPool)
+	{
+		this.m_inPool = inPool;
+	}
+
+	public int GetNumChildren()
+	{
+		return m_children.size();
+	}
+
+	public GameObject GetChild(int index)
+	{
+		return m_children.get(index);
+	}
+
 	public void SetEngine(CoreEngine engine)
 	{
 		if(this.m_engine != engine)
 		{
+			if(this.m_engine != null)
+			{
+				for(GameComponent component : m_components)
+					component.RemoveFromEngine(this.m_engine);
+			}
+
 			this.m_engine = engine;
 
-			for(GameComponent component : m_components)
-				component.AddToEngine(engine);
+			if(engine != null)
+			{
+				for(GameComponent component : m_components)
+					component.AddToEngine(engine);
+			}
 
 			for(GameObject child : m_children)
 				child.SetEngine(engine);
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.ArrayList;
+
+//Recycles GameObjects for things spawned and destroyed often, like projectiles or particles. Destroy() on an
+//acquired object hands it back here instead of discarding it, so its Transform, children and components are reused.
+public abstract class GameObjectPool
+{
+	private ArrayList<GameObject> m_free;
+
+	public GameObjectPool()
+	{
+		m_free = new ArrayList<GameObject>();
+	}
+
+	//Builds a new object, with its components, when the pool is empty
+	protected abstract GameObject Create();
+
+	//Called on every object handed out, new or reused, before it is returned
+	protected void OnAcquire(GameObject object) {}
+
+	//Called when an object comes back, after its transform was reset
+	protected void OnRelease(GameObject object) {}
+
+	public GameObject Acquire()
+	{
+		GameObject object = m_free.isEmpty() ? Create() : m_free.remove(m_free.size() - 1);
+
+		object.SetPool(this);
+		object.SetInPool(false);
+
+		//Wherever the caller places it, a spawned object mustn't streak in from where it died
+		object.GetTransform().ResetInterpolation();
+		OnAcquire(object);
+
+		return object;
+	}
+
+	//A second release of an object already back here is ignored; listing it twice would hand it out twice
+	void Release(GameObject object)
+	{
+		if(object.IsInPool())
+			return;
+
+		Transform transform = object.GetTransform();
+
+		transform.GetPos().Set(0, 0, 0);
+		transform.GetRot().Set(0, 0, 0, 1);
+		transform.GetScale().Set(1, 1, 1);
+		transform.ResetInterpolation();
+
+		OnRelease(object);
+		object.SetInPool(true);
+		m_free.add(object);
+	}
+
+	//Creates objects ahead of time so the first spawns don't allocate
+	public void Prewarm(int count)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			GameObject object = Create();
+			object.SetPool(this);
+			object.SetInPool(true);
+			m_free.add(object);
+		}
+	}
+
+	public int GetNumFree()
+	{
+		return m_free.size();
+	}
+}
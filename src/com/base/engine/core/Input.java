@@ -156,6 +156,36 @@ public class Input
 	
 	private static boolean[] m_lastKeys = new boolean[NUM_KEYCODES];
 	private static boolean[] m_lastMouse = new boolean[NUM_MOUSEBUTTONS];
+
+	private static final InputSource DEVICES = new InputSource()
+	{
+		@Override public boolean IsKeyDown(int keyCode)             { return Keyboard.isKeyDown(keyCode); }
+		@Override public boolean IsMouseButtonDown(int mouseButton) { return Mouse.isButtonDown(mouseButton); }
+		@Override public int GetMouseX()                            { return Mouse.getX(); }
+		@Override public int GetMouseY()                            { return Mouse.getY(); }
+		@Override public void SetMousePosition(int x, int y)        { Mouse.setCursorPosition(x, y); }
+		@Override public void SetCursor(boolean enabled)            { Mouse.setGrabbed(!enabled); }
+	};
+
+	private static InputSource s_source = null;
+
+	//Null restores the keyboard and mouse
+	public static void SetSource(InputSource source)
+	{
+		s_source = source;
+	}
+
+	//Null while reading the keyboard and mouse
+	public static InputSource GetSource()
+	{
+		return s_source;
+	}
+
+	//The source in use, falling back to the keyboard and mouse
+	static InputSource Source()
+	{
+		return s_source != null ? s_source : DEVICES;
+	}
 	
 	public static void Update()
 	{
@@ -168,7 +198,7 @@ public class Input
 	
 	public static boolean GetKey(int keyCode)
 	{
-		return Keyboard.isKeyDown(keyCode);
+		return Source().IsKeyDown(keyCode);
 	}
 	
 	public static boolean GetKeyDown(int keyCode)
@@ -183,7 +213,7 @@ public class Input
 	
 	public static boolean GetMouse(int mouseButton)
 	{
-		return Mouse.isButtonDown(mouseButton);
+		return Source().IsMouseButtonDown(mouseButton);
 	}
 	
 	public static boolean GetMouseDown(int mouseButton)
@@ -198,16 +228,16 @@ public class Input
 	
 	public static Vector2f GetMousePosition()
 	{
-		return new Vector2f(Mouse.getX(), Mouse.getY());
+		return new Vector2f(Source().GetMouseX(), Source().GetMouseY());
 	}
 	
 	public static void SetMousePosition(Vector2f pos)
 	{
-		Mouse.setCursorPosition((int)pos.GetX(), (int)pos.GetY());
+		Source().SetMousePosition((int)pos.GetX(), (int)pos.GetY());
 	}
 	
 	public static void SetCursor(boolean enabled)
 	{
-		Mouse.setGrabbed(!enabled);
+		Source().SetCursor(enabled);
 	}
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+//Where Input reads its state from. The default reads LWJGL's keyboard and mouse; headless runs, replays and tests
+//install their own with Input.SetSource.
+public interface InputSource
+{
+	//Reports nothing held and ignores cursor changes; the default for headless runs
+	InputSource NONE = new InputSource()
+	{
+		@Override public boolean IsKeyDown(int keyCode)             { return false; }
+		@Override public boolean IsMouseButtonDown(int mouseButton) { return false; }
+		@Override public int GetMouseX()                            { return 0; }
+		@Override public int GetMouseY()                            { return 0; }
+		@Override public void SetMousePosition(int x, int y)        {}
+		@Override public void SetCursor(boolean enabled)            {}
+	};
+
+	boolean IsKeyDown(int keyCode);
+	boolean IsMouseButtonDown(int mouseButton);
+	int GetMouseX();
+	int GetMouseY();
+	void SetMousePosition(int x, int y);
+	void SetCursor(boolean enabled);
+}
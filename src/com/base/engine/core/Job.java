@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.base.engine.core;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Handle to a unit of work scheduled on a JobSystem. A job becomes runnable once every job it depends on is done;
+//jobs that depend on it are its continuations and are released the moment it finishes.
+public class Job
+{
+	private final JobSystem     m_system;
+	private final Runnable      m_work;
+	private final boolean       m_mainThread;
+	private final AtomicInteger m_pendingDependencies;
+	private final AtomicBoolean m_claimed;
+	private volatile Job[]      m_dependencies;
+	private ArrayList<Job>      m_continuations;
+	private volatile Throwable  m_error;
+	private volatile boolean    m_done;
+
+	//The extra pending count is released by Release, so a job can't start while it is still being wired up
+	Job(JobSystem system, Runnable work, boolean mainThread, Job[] dependencies)
+	{
+		this.m_system = system;
+		this.m_work = work;
+		this.m_mainThread = mainThread;
+		this.m_pendingDependencies = new AtomicInteger(dependencies.length + 1);
+		this.m_claimed = new AtomicBoolean(false);
+		this.m_dependencies = dependencies;
+		this.m_done = false;
+	}
+
+	public boolean IsDone()
+	{
+		return m_done;
+	}
+
+	//Blocks until done, rethrowing whatever the work (or a job it depended on) threw
+	public void Wait()
+	{
+		m_system.Wait(this);
+	}
+
+	public boolean IsMainThreadOnly()
+	{
+		return m_mainThread;
+	}
+
+	//Set once done, if the work threw or a dependency failed; a job whose dependency failed doesn't run
+	public Throwable GetError()
+	{
+		return m_error;
+	}
+
+	void Rethrow()
+	{
+		Throwable error = m_error;
+
+		if(error instanceof RuntimeException)
+			throw (RuntimeException)error;
+		if(error instanceof Error)
+			throw (Error)error;
+		if(error != null)
+			throw new RuntimeException(error);
+	}
+
+	//Whoever claims a runnable job runs it; queues may still hold it afterwards and just skip it
+	boolean TryClaim()
+	{
+		return m_pendingDependencies.get() == 0 && m_claimed.compareAndSet(false, true);
+	}
+
+	//Null once done
+	Job[] GetDependencies()
+	{
+		return m_dependencies;
+	}
+
+	//Returns false if this already finished, in which case continuation won't be released by it
+	synchronized boolean AddContinuation(Job continuation)
+	{
+		if(m_done)
+			return false;
+
+		if(m_continuations == null)
+			m_continuations = new ArrayList<Job>(2);
+
+		m_continuations.add(continuation);
+		return true;
+	}
+
+	//One dependency (or the initial wiring) is done; the last one hands the job to the system. A job without work,
+	//or one that won't run because a dependency failed, completes right here instead of taking a trip through a queue.
+	void Release(Throwable dependencyError)
+	{
+		if(dependencyError != null && m_error == null)
+			m_error = dependencyError;
+
+		if(m_pendingDependencies.decrementAndGet() != 0)
+			return;
+
+		if(m_work == null || m_error != null)
+		{
+			if(TryClaim())
+				Run();
+		}
+		else
+			m_system.Submit(this);
+	}
+
+	//Only by the thread that claimed this
+	void Run()
+	{
+		if(m_work != null && m_error == null)
+		{
+			try
+			{
+				m_work.run();
+			}
+			catch(Throwable e)
+			{
+				m_error = e;
+			}
+		}
+
+		ArrayList<Job> continuations;
+
+		synchronized(this)
+		{
+			m_done = true;
+			m_dependencies = null;
+			continuations = m_continuations;
+			m_continuations = null;
+		}
+
+		if(continuations != null)
+		{
+			for(int i = 0; i < continuations.size(); i++)
+				continuations.get(i).Release(m_error);
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.base.engine.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+//Fixed pool of worker threads, one per core minus the one the main thread runs on, shared by every engine subsystem
+//that has parallel work. Each worker keeps its own deque: jobs it schedules go on the back and it takes from the
+//back, while idle workers steal from the front, so nested fork/join work stays on one core until someone is idle.
+//Jobs marked main-thread-only (anything making GL calls) run only when the main thread calls RunMainThreadJobs or
+//waits on a job that depends on them. An exception thrown by a job is rethrown from Wait on the waiting thread.
+public class JobSystem
+{
+	private static final int  WAIT_SPINS       = 64;
+	private static final long WAIT_PARK_NANOS  = 20000L;
+
+	private static JobSystem s_default;
+
+	public interface RangeBody
+	{
+		void Run(int start, int end);
+	}
+
+	private final Worker[]                   m_workers;
+	private final ConcurrentLinkedQueue<Job> m_submitted;
+	private final ConcurrentLinkedQueue<Job> m_mainThreadJobs;
+	private final AtomicInteger              m_numSleeping;
+	private final Semaphore                  m_wakeups;
+	private volatile Thread                  m_mainThread;
+
+	//Created on first use, so nothing starts threads unless it has parallel work
+	public static synchronized JobSystem GetDefault()
+	{
+		if(s_default == null)
+			s_default = new JobSystem(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+		return s_default;
+	}
+
+	public JobSystem(int numWorkers)
+	{
+		m_submitted = new ConcurrentLinkedQueue<Job>();
+		m_mainThreadJobs = new ConcurrentLinkedQueue<Job>();
+		m_numSleeping = new AtomicInteger(0);
+		m_wakeups = new Semaphore(0);
+		m_mainThread = Thread.currentThread();
+
+		m_workers = new Worker[numWorkers];
+
+		for(int i = 0; i < numWorkers; i++)
+			m_workers[i] = new Worker(i);
+
+		for(int i = 0; i < numWorkers; i++)
+			m_workers[i].start();
+	}
+
+	//The thread owning the GL context; defaults to the one that created this system
+	public void SetMainThread(Thread thread)
+	{
+		this.m_mainThread = thread;
+	}
+
+	public boolean IsMainThread()
+	{
+		return Thread.currentThread() == m_mainThread;
+	}
+
+	public int GetNumWorkers()
+	{
+		return m_workers.length;
+	}
+
+	//Runs work once every dependency is done, or as soon as a thread is free if there are none
+	public Job Schedule(Runnable work, Job... dependencies)
+	{
+		return Wire(new Job(this, work, false, dependencies), dependencies);
+	}
+
+	public Job ScheduleOnMainThread(Runnable work, Job... dependencies)
+	{
+		return Wire(new Job(this, work, true, dependencies), dependencies);
+	}
+
+	//A job that is done once all of jobs are
+	public Job WhenAll(Job... jobs)
+	{
+		return Wire(new Job(this, null, false, jobs), jobs);
+	}
+
+	//Calls body on consecutive slices of [start, end) of at most grain indices each, in parallel. The returned job is
+	//done once every slice is.
+	public Job ParallelFor(int start, int end, int grain, RangeBody body, Job... dependencies)
+	{
+		grain = Math.max(1, grain);
+		int numSlices = end > start ? (end - start + grain - 1) / grain : 0;
+
+		Job[] slices = new Job[numSlices];
+
+		for(int i = 0; i < numSlices; i++)
+		{
+			final int from = start + i * grain;
+			final int to = Math.min(end, from + grain);
+
+			slices[i] = Schedule(() -> body.Run(from, to), dependencies);
+		}
+
+		return WhenAll(slices);
+	}
+
+	private Job Wire(Job job, Job[] dependencies)
+	{
+		for(Job dependency : dependencies)
+		{
+			if(!dependency.AddContinuation(job))
+				job.Release(dependency.GetError());
+		}
+
+		job.Release(null);
+		return job;
+	}
+
+	void Submit(Job job)
+	{
+		if(job.IsMainThreadOnly())
+			m_mainThreadJobs.add(job);
+		else
+		{
+			Thread thread = Thread.currentThread();
+
+			if(thread instanceof Worker && ((Worker)thread).GetSystem() == this)
+				((Worker)thread).m_jobs.addLast(job);
+			else
+				m_submitted.add(job);
+
+			//Read after the push, so a worker about to sleep either sees the job or gets woken
+			if(m_numSleeping.get() > 0)
+				m_wakeups.release();
+		}
+	}
+
+	//Blocks until job is done, then rethrows its error if it failed. Meanwhile the calling thread runs job itself, or
+	//a job it still depends on, if nobody has started it yet, which keeps fork/join from starving the pool. Nothing
+	//unrelated is picked up, since the caller may hold a lock (TransformStore.Update does) that other jobs need.
+	public void Wait(Job job)
+	{
+		boolean mainThread = IsMainThread();
+		int idleSpins = 0;
+
+		while(!job.IsDone())
+		{
+			if(Help(job, mainThread))
+				idleSpins = 0;
+			else if(++idleSpins < WAIT_SPINS)
+				Thread.yield();
+			else
+				LockSupport.parkNanos(WAIT_PARK_NANOS);
+		}
+
+		job.Rethrow();
+	}
+
+	private boolean Help(Job job, boolean mainThread)
+	{
+		if(job.IsDone())
+			return false;
+
+		if((mainThread || !job.IsMainThreadOnly()) && job.TryClaim())
+		{
+			job.Run();
+			return true;
+		}
+
+		Job[] dependencies = job.GetDependencies();
+
+		if(dependencies != null)
+		{
+			for(Job dependency : dependencies)
+			{
+				if(Help(dependency, mainThread))
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	//Main thread only; called once per frame by CoreEngine
+	public void RunMainThreadJobs()
+	{
+		Job job;
+
+		while((job = Claim(m_mainThreadJobs.poll(), m_mainThreadJobs)) != null)
+			job.Run();
+	}
+
+	//Jobs already claimed by a waiter are skipped
+	private static Job Claim(Job job, Queue<Job> queue)
+	{
+		while(job != null && !job.TryClaim())
+			job = queue.poll();
+
+		return job;
+	}
+
+	private Job FindWork(Worker worker)
+	{
+		Job job = null;
+
+		while((job = worker.m_jobs.pollLast()) != null)
+		{
+			if(job.TryClaim())
+				return job;
+		}
+
+		job = Claim(m_submitted.poll(), m_submitted);
+
+		if(job == null)
+			job = Steal(worker);
+
+		return job;
+	}
+
+	private Job Steal(Thread thief)
+	{
+		int numWorkers = m_workers.length;
+		int first = ThreadLocalRandom.current().nextInt(numWorkers);
+
+		for(int i = 0; i < numWorkers; i++)
+		{
+			Worker victim = m_workers[(first + i) % numWorkers];
+
+			if(victim == thief)
+				continue;
+
+			Job job;
+
+			while((job = victim.m_jobs.pollFirst()) != null)
+			{
+				if(job.TryClaim())
+					return job;
+			}
+		}
+
+		return null;
+	}
+
+	private class Worker extends Thread
+	{
+		private final ConcurrentLinkedDeque<Job> m_jobs;
+
+		public Worker(int index)
+		{
+			super("Job Worker " + index);
+			this.m_jobs = new ConcurrentLinkedDeque<Job>();
+			setDaemon(true);
+		}
+
+		public JobSystem GetSystem()
+		{
+			return JobSystem.this;
+		}
+
+		@Override
+		public void run()
+		{
+			while(true)
+			{
+				Job job = FindWork(this);
+
+				if(job == null)
+				{
+					//Announce the sleep before looking once more; see Submit
+					m_numSleeping.incrementAndGet();
+					job = FindWork(this);
+
+					if(job == null)
+						m_wakeups.acquireUninterruptibly();
+
+					m_numSleeping.decrementAndGet();
+				}
+
+				if(job != null)
+					job.Run();
+			}
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.Arrays;
+
+//Fixed-size histogram of durations in nanoseconds. Each power of two is split into SUB_BUCKETS linear buckets, so
+//percentiles are accurate to within about 3% from a microsecond up to a minute, in a few kilobytes and with no
+//allocation while recording.
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT    = 36;
+	private static final int NUM_BUCKETS     = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final int[] m_counts;
+	private long        m_count;
+	private long        m_max;
+	private long        m_sum;
+
+	public LatencyHistogram()
+	{
+		m_counts = new int[NUM_BUCKETS];
+		Reset();
+	}
+
+	public void Record(long nanos)
+	{
+		if(nanos < 0)
+			nanos = 0;
+
+		m_counts[GetBucket(nanos)]++;
+		m_count++;
+		m_sum += nanos;
+
+		if(nanos > m_max)
+			m_max = nanos;
+	}
+
+	//Values below SUB_BUCKETS get a bucket each; above that, the top SUB_BUCKET_BITS bits below the leading one pick
+	//the sub-bucket within the value's power of two
+	private static int GetBucket(long nanos)
+	{
+		if(nanos < SUB_BUCKETS)
+			return (int)nanos;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+
+		if(exponent > MAX_EXPONENT)
+			return NUM_BUCKETS - 1;
+
+		int subBucket = (int)(nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	//Upper end of the bucket's range
+	private static long GetBucketLimit(int bucket)
+	{
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+
+		return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	//The smallest recorded bucket limit at or below which the given fraction (0..1) of values lie, capped at the max
+	public long GetPercentile(double fraction)
+	{
+		if(m_count == 0)
+			return 0;
+
+		long target = Math.max(1, (long)Math.ceil(fraction * m_count));
+		long seen = 0;
+
+		for(int i = 0; i < NUM_BUCKETS; i++)
+		{
+			seen += m_counts[i];
+
+			if(seen >= target)
+				return Math.min(GetBucketLimit(i), m_max);
+		}
+
+		return m_max;
+	}
+
+	//Number of recorded values above nanos, to the resolution of the buckets
+	public long GetCountAbove(long nanos)
+	{
+		long result = 0;
+
+		for(int i = GetBucket(nanos) + 1; i < NUM_BUCKETS; i++)
+			result += m_counts[i];
+
+		return result;
+	}
+
+	public void Set(LatencyHistogram r)
+	{
+		System.arraycopy(r.m_counts, 0, m_counts, 0, NUM_BUCKETS);
+		m_count = r.m_count;
+		m_max = r.m_max;
+		m_sum = r.m_sum;
+	}
+
+	public void Reset()
+	{
+		Arrays.fill(m_counts, 0);
+		m_count = 0;
+		m_max = 0;
+		m_sum = 0;
+	}
+
+	public long GetCount() { return m_count; }
+	public long GetMax()   { return m_max; }
+	public double GetMean() { return m_count == 0 ? 0 : (double)m_sum / m_count; }
+}
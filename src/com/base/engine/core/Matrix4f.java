@@ -16,71 +16,63 @@
 
 package com.base.engine.core;
 
+import java.nio.FloatBuffer;
+
 public class Matrix4f
 {
-	private float[][] m;
+	//Row-major: element (row, col) lives at m[row * 4 + col]
+	private float[] m;
 	
 	public Matrix4f()
 	{
-		m = new float[4][4];
+		m = new float[16];
 	}
 
 	public Matrix4f InitIdentity()
 	{
-		m[0][0] = 1;	m[0][1] = 0;	m[0][2] = 0;	m[0][3] = 0;
-		m[1][0] = 0;	m[1][1] = 1;	m[1][2] = 0;	m[1][3] = 0;
-		m[2][0] = 0;	m[2][1] = 0;	m[2][2] = 1;	m[2][3] = 0;
-		m[3][0] = 0;	m[3][1] = 0;	m[3][2] = 0;	m[3][3] = 1;
+		m[ 0] = 1;	m[ 1] = 0;	m[ 2] = 0;	m[ 3] = 0;
+		m[ 4] = 0;	m[ 5] = 1;	m[ 6] = 0;	m[ 7] = 0;
+		m[ 8] = 0;	m[ 9] = 0;	m[10] = 1;	m[11] = 0;
+		m[12] = 0;	m[13] = 0;	m[14] = 0;	m[15] = 1;
 
 		return this;
 	}
 	
 	public Matrix4f InitTranslation(float x, float y, float z)
 	{
-		m[0][0] = 1;	m[0][1] = 0;	m[0][2] = 0;	m[0][3] = x;
-		m[1][0] = 0;	m[1][1] = 1;	m[1][2] = 0;	m[1][3] = y;
-		m[2][0] = 0;	m[2][1] = 0;	m[2][2] = 1;	m[2][3] = z;
-		m[3][0] = 0;	m[3][1] = 0;	m[3][2] = 0;	m[3][3] = 1;
+		m[ 0] = 1;	m[ 1] = 0;	m[ 2] = 0;	m[ 3] = x;
+		m[ 4] = 0;	m[ 5] = 1;	m[ 6] = 0;	m[ 7] = y;
+		m[ 8] = 0;	m[ 9] = 0;	m[10] = 1;	m[11] = z;
+		m[12] = 0;	m[13] = 0;	m[14] = 0;	m[15] = 1;
 		
 		return this;
 	}
 	
 	public Matrix4f InitRotation(float x, float y, float z)
 	{
-		Matrix4f rx = new Matrix4f();
-		Matrix4f ry = new Matrix4f();
-		Matrix4f rz = new Matrix4f();
-		
 		x = (float)Math.toRadians(x);
 		y = (float)Math.toRadians(y);
 		z = (float)Math.toRadians(z);
-		
-		rz.m[0][0] = (float)Math.cos(z);rz.m[0][1] = -(float)Math.sin(z);rz.m[0][2] = 0;				rz.m[0][3] = 0;
-		rz.m[1][0] = (float)Math.sin(z);rz.m[1][1] = (float)Math.cos(z);rz.m[1][2] = 0;					rz.m[1][3] = 0;
-		rz.m[2][0] = 0;					rz.m[2][1] = 0;					rz.m[2][2] = 1;					rz.m[2][3] = 0;
-		rz.m[3][0] = 0;					rz.m[3][1] = 0;					rz.m[3][2] = 0;					rz.m[3][3] = 1;
-		
-		rx.m[0][0] = 1;					rx.m[0][1] = 0;					rx.m[0][2] = 0;					rx.m[0][3] = 0;
-		rx.m[1][0] = 0;					rx.m[1][1] = (float)Math.cos(x);rx.m[1][2] = -(float)Math.sin(x);rx.m[1][3] = 0;
-		rx.m[2][0] = 0;					rx.m[2][1] = (float)Math.sin(x);rx.m[2][2] = (float)Math.cos(x);rx.m[2][3] = 0;
-		rx.m[3][0] = 0;					rx.m[3][1] = 0;					rx.m[3][2] = 0;					rx.m[3][3] = 1;
-		
-		ry.m[0][0] = (float)Math.cos(y);ry.m[0][1] = 0;					ry.m[0][2] = -(float)Math.sin(y);ry.m[0][3] = 0;
-		ry.m[1][0] = 0;					ry.m[1][1] = 1;					ry.m[1][2] = 0;					ry.m[1][3] = 0;
-		ry.m[2][0] = (float)Math.sin(y);ry.m[2][1] = 0;					ry.m[2][2] = (float)Math.cos(y);ry.m[2][3] = 0;
-		ry.m[3][0] = 0;					ry.m[3][1] = 0;					ry.m[3][2] = 0;					ry.m[3][3] = 1;
-		
-		m = rz.Mul(ry.Mul(rx)).GetM();
+
+		float sx = (float)Math.sin(x);	float cx = (float)Math.cos(x);
+		float sy = (float)Math.sin(y);	float cy = (float)Math.cos(y);
+		float sz = (float)Math.sin(z);	float cz = (float)Math.cos(z);
+
+		//Expanded form of rz * ry * rx
+		m[ 0] = cz * cy;	m[ 1] = -sz * cx - cz * sy * sx;	m[ 2] = sz * sx - cz * sy * cx;		m[ 3] = 0;
+		m[ 4] = sz * cy;	m[ 5] = cz * cx - sz * sy * sx;		m[ 6] = -cz * sx - sz * sy * cx;	m[ 7] = 0;
+		m[ 8] = sy;			m[ 9] = cy * sx;					m[10] = cy * cx;					m[11] = 0;
+		m[12] = 0;			m[13] = 0;							m[14] = 0;							m[15] = 1;
 		
 		return this;
 	}
 	
 	public Matrix4f InitScale(float x, float y, float z)
 	{
-		m[0][0] = x;	m[0][1] = 0;	m[0][2] = 0;	m[0][3] = 0;
-		m[1][0] = 0;	m[1][1] = y;	m[1][2] = 0;	m[1][3] = 0;
-		m[2][0] = 0;	m[2][1] = 0;	m[2][2] = z;	m[2][3] = 0;
-		m[3][0] = 0;	m[3][1] = 0;	m[3][2] = 0;	m[3][3] = 1;
+		m[ 0] = x;	m[ 1] = 0;	m[ 2] = 0;	m[ 3] = 0;
+		m[ 4] = 0;	m[ 5] = y;	m[ 6] = 0;	m[ 7] = 0;
+		m[ 8] = 0;	m[ 9] = 0;	m[10] = z;	m[11] = 0;
+		m[12] = 0;	m[13] = 0;	m[14] = 0;	m[15] = 1;
 		
 		return this;
 	}
@@ -90,10 +82,10 @@ public class Matrix4f
 		float tanHalfFOV = (float)Math.tan(fov / 2);
 		float zRange = zNear - zFar;
 		
-		m[0][0] = 1.0f / (tanHalfFOV * aspectRatio);	m[0][1] = 0;					m[0][2] = 0;	m[0][3] = 0;
-		m[1][0] = 0;						m[1][1] = 1.0f / tanHalfFOV;	m[1][2] = 0;	m[1][3] = 0;
-		m[2][0] = 0;						m[2][1] = 0;					m[2][2] = (-zNear -zFar)/zRange;	m[2][3] = 2 * zFar * zNear / zRange;
-		m[3][0] = 0;						m[3][1] = 0;					m[3][2] = 1;	m[3][3] = 0;
+		m[ 0] = 1.0f / (tanHalfFOV * aspectRatio);	m[ 1] = 0;					m[ 2] = 0;	m[ 3] = 0;
+		m[ 4] = 0;						m[ 5] = 1.0f / tanHalfFOV;	m[ 6] = 0;	m[ 7] = 0;
+		m[ 8] = 0;						m[ 9] = 0;					m[10] = (-zNear -zFar)/zRange;	m[11] = 2 * zFar * zNear / zRange;
+		m[12] = 0;						m[13] = 0;					m[14] = 1;	m[15] = 0;
 		
 		
 		return this;
@@ -105,10 +97,10 @@ public class Matrix4f
 		float height = top - bottom;
 		float depth = far - near;
 
-		m[0][0] = 2/width;m[0][1] = 0;	m[0][2] = 0;	m[0][3] = -(right + left)/width;
-		m[1][0] = 0;	m[1][1] = 2/height;m[1][2] = 0;	m[1][3] = -(top + bottom)/height;
-		m[2][0] = 0;	m[2][1] = 0;	m[2][2] = -2/depth;m[2][3] = -(far + near)/depth;
-		m[3][0] = 0;	m[3][1] = 0;	m[3][2] = 0;	m[3][3] = 1;
+		m[ 0] = 2/width;m[ 1] = 0;	m[ 2] = 0;	m[ 3] = -(right + left)/width;
+		m[ 4] = 0;	m[ 5] = 2/height;m[ 6] = 0;	m[ 7] = -(top + bottom)/height;
+		m[ 8] = 0;	m[ 9] = 0;	m[10] = -2/depth;m[11] = -(far + near)/depth;
+		m[12] = 0;	m[13] = 0;	m[14] = 0;	m[15] = 1;
 
 		return this;
 	}
@@ -131,62 +123,220 @@ public class Matrix4f
 		Vector3f r = right;
 		Vector3f u = up;
 
-		m[0][0] = r.GetX();	m[0][1] = r.GetY();	m[0][2] = r.GetZ();	m[0][3] = 0;
-		m[1][0] = u.GetX();	m[1][1] = u.GetY();	m[1][2] = u.GetZ();	m[1][3] = 0;
-		m[2][0] = f.GetX();	m[2][1] = f.GetY();	m[2][2] = f.GetZ();	m[2][3] = 0;
-		m[3][0] = 0;		m[3][1] = 0;		m[3][2] = 0;		m[3][3] = 1;
+		m[ 0] = r.GetX();	m[ 1] = r.GetY();	m[ 2] = r.GetZ();	m[ 3] = 0;
+		m[ 4] = u.GetX();	m[ 5] = u.GetY();	m[ 6] = u.GetZ();	m[ 7] = 0;
+		m[ 8] = f.GetX();	m[ 9] = f.GetY();	m[10] = f.GetZ();	m[11] = 0;
+		m[12] = 0;			m[13] = 0;			m[14] = 0;			m[15] = 1;
+
+		return this;
+	}
+
+	public Matrix4f InitRotation(Quaternion q)
+	{
+		float x = q.GetX();
+		float y = q.GetY();
+		float z = q.GetZ();
+		float w = q.GetW();
+
+		m[ 0] = 1.0f - 2.0f * (y * y + z * z);	m[ 1] = 2.0f * (x * y - w * z);			m[ 2] = 2.0f * (x * z + w * y);			m[ 3] = 0;
+		m[ 4] = 2.0f * (x * y + w * z);			m[ 5] = 1.0f - 2.0f * (x * x + z * z);	m[ 6] = 2.0f * (y * z - w * x);			m[ 7] = 0;
+		m[ 8] = 2.0f * (x * z - w * y);			m[ 9] = 2.0f * (y * z + w * x);			m[10] = 1.0f - 2.0f * (x * x + y * y);	m[11] = 0;
+		m[12] = 0;								m[13] = 0;								m[14] = 0;								m[15] = 1;
+
+		return this;
+	}
+
+	public Matrix4f InitTRS(Vector3f pos, Quaternion rot, Vector3f scale)
+	{
+		InitTRS(m, 0, pos.GetX(), pos.GetY(), pos.GetZ(), rot.GetX(), rot.GetY(), rot.GetZ(), rot.GetW(),
+		        scale.GetX(), scale.GetY(), scale.GetZ());
 
 		return this;
 	}
 
+	//Writes translation * rotation * scale in one pass, without building the three factors
+	public static void InitTRS(float[] d, int o, float px, float py, float pz, float x, float y, float z, float w,
+	                           float sx, float sy, float sz)
+	{
+		float xx = x * x, yy = y * y, zz = z * z;
+		float xy = x * y, xz = x * z, yz = y * z;
+		float wx = w * x, wy = w * y, wz = w * z;
+
+		d[o     ] = (1.0f - 2.0f * (yy + zz)) * sx;
+		d[o +  1] = 2.0f * (xy - wz) * sy;
+		d[o +  2] = 2.0f * (xz + wy) * sz;
+		d[o +  3] = px;
+		d[o +  4] = 2.0f * (xy + wz) * sx;
+		d[o +  5] = (1.0f - 2.0f * (xx + zz)) * sy;
+		d[o +  6] = 2.0f * (yz - wx) * sz;
+		d[o +  7] = py;
+		d[o +  8] = 2.0f * (xz - wy) * sx;
+		d[o +  9] = 2.0f * (yz + wx) * sy;
+		d[o + 10] = (1.0f - 2.0f * (xx + yy)) * sz;
+		d[o + 11] = pz;
+		d[o + 12] = 0;
+		d[o + 13] = 0;
+		d[o + 14] = 0;
+		d[o + 15] = 1;
+	}
+
 	public Vector3f Transform(Vector3f r)
 	{
-		return new Vector3f(m[0][0] * r.GetX() + m[0][1] * r.GetY() + m[0][2] * r.GetZ() + m[0][3],
-		                    m[1][0] * r.GetX() + m[1][1] * r.GetY() + m[1][2] * r.GetZ() + m[1][3],
-		                    m[2][0] * r.GetX() + m[2][1] * r.GetY() + m[2][2] * r.GetZ() + m[2][3]);
+		return Transform(r, new Vector3f(0, 0, 0));
+	}
+
+	public Vector3f Transform(Vector3f r, Vector3f dest)
+	{
+		float x = r.GetX();
+		float y = r.GetY();
+		float z = r.GetZ();
+
+		return dest.Set(m[ 0] * x + m[ 1] * y + m[ 2] * z + m[ 3],
+		                m[ 4] * x + m[ 5] * y + m[ 6] * z + m[ 7],
+		                m[ 8] * x + m[ 9] * y + m[10] * z + m[11]);
 	}
 	
 	public Matrix4f Mul(Matrix4f r)
 	{
-		Matrix4f res = new Matrix4f();
-		
-		for(int i = 0; i < 4; i++)
+		return MulInto(this, r, new Matrix4f());
+	}
+
+	//dest may be the same instance as a or b
+	public static Matrix4f MulInto(Matrix4f a, Matrix4f b, Matrix4f dest)
+	{
+		float[] l = a.m;
+		float[] r = b.m;
+
+		float r00 = r[ 0], r01 = r[ 1], r02 = r[ 2], r03 = r[ 3];
+		float r10 = r[ 4], r11 = r[ 5], r12 = r[ 6], r13 = r[ 7];
+		float r20 = r[ 8], r21 = r[ 9], r22 = r[10], r23 = r[11];
+		float r30 = r[12], r31 = r[13], r32 = r[14], r33 = r[15];
+
+		float[] d = dest.m;
+
+		for(int i = 0; i < 16; i += 4)
 		{
-			for(int j = 0; j < 4; j++)
-			{
-				res.Set(i, j, m[i][0] * r.Get(0, j) +
-						m[i][1] * r.Get(1, j) +
-						m[i][2] * r.Get(2, j) +
-						m[i][3] * r.Get(3, j));
-			}
+			float l0 = l[i];
+			float l1 = l[i + 1];
+			float l2 = l[i + 2];
+			float l3 = l[i + 3];
+
+			d[i    ] = l0 * r00 + l1 * r10 + l2 * r20 + l3 * r30;
+			d[i + 1] = l0 * r01 + l1 * r11 + l2 * r21 + l3 * r31;
+			d[i + 2] = l0 * r02 + l1 * r12 + l2 * r22 + l3 * r32;
+			d[i + 3] = l0 * r03 + l1 * r13 + l2 * r23 + l3 * r33;
 		}
-		
-		return res;
+
+		return dest;
+	}
+
+	//Both operands must have a bottom row of (0, 0, 0, 1), as every TRS and view matrix does; dest may alias a or b
+	public static Matrix4f MulAffine(Matrix4f a, Matrix4f b, Matrix4f dest)
+	{
+		MulAffine(a.m, 0, b.m, 0, dest.m, 0);
+
+		return dest;
+	}
+
+	public static void MulAffine(float[] a, int ao, float[] b, int bo, float[] d, int o)
+	{
+		float b00 = b[bo    ], b01 = b[bo + 1], b02 = b[bo +  2], b03 = b[bo +  3];
+		float b10 = b[bo + 4], b11 = b[bo + 5], b12 = b[bo +  6], b13 = b[bo +  7];
+		float b20 = b[bo + 8], b21 = b[bo + 9], b22 = b[bo + 10], b23 = b[bo + 11];
+
+		float a00 = a[ao    ], a01 = a[ao + 1], a02 = a[ao +  2], a03 = a[ao +  3];
+		float a10 = a[ao + 4], a11 = a[ao + 5], a12 = a[ao +  6], a13 = a[ao +  7];
+		float a20 = a[ao + 8], a21 = a[ao + 9], a22 = a[ao + 10], a23 = a[ao + 11];
+
+		d[o     ] = a00 * b00 + a01 * b10 + a02 * b20;
+		d[o +  1] = a00 * b01 + a01 * b11 + a02 * b21;
+		d[o +  2] = a00 * b02 + a01 * b12 + a02 * b22;
+		d[o +  3] = a00 * b03 + a01 * b13 + a02 * b23 + a03;
+		d[o +  4] = a10 * b00 + a11 * b10 + a12 * b20;
+		d[o +  5] = a10 * b01 + a11 * b11 + a12 * b21;
+		d[o +  6] = a10 * b02 + a11 * b12 + a12 * b22;
+		d[o +  7] = a10 * b03 + a11 * b13 + a12 * b23 + a13;
+		d[o +  8] = a20 * b00 + a21 * b10 + a22 * b20;
+		d[o +  9] = a20 * b01 + a21 * b11 + a22 * b21;
+		d[o + 10] = a20 * b02 + a21 * b12 + a22 * b22;
+		d[o + 11] = a20 * b03 + a21 * b13 + a22 * b23 + a23;
+		d[o + 12] = 0;
+		d[o + 13] = 0;
+		d[o + 14] = 0;
+		d[o + 15] = 1;
+	}
+
+	//Inverse of a matrix whose upper 3x3 is a pure rotation (no scale or shear) and whose bottom row is (0, 0, 0, 1);
+	//dest may be this
+	public Matrix4f InvertRigid(Matrix4f dest)
+	{
+		float r00 = m[0], r01 = m[1], r02 = m[ 2], tx = m[ 3];
+		float r10 = m[4], r11 = m[5], r12 = m[ 6], ty = m[ 7];
+		float r20 = m[8], r21 = m[9], r22 = m[10], tz = m[11];
+
+		float[] d = dest.m;
+
+		d[ 0] = r00;	d[ 1] = r10;	d[ 2] = r20;	d[ 3] = -(r00 * tx + r10 * ty + r20 * tz);
+		d[ 4] = r01;	d[ 5] = r11;	d[ 6] = r21;	d[ 7] = -(r01 * tx + r11 * ty + r21 * tz);
+		d[ 8] = r02;	d[ 9] = r12;	d[10] = r22;	d[11] = -(r02 * tx + r12 * ty + r22 * tz);
+		d[12] = 0;		d[13] = 0;		d[14] = 0;		d[15] = 1;
+
+		return dest;
+	}
+
+	public Matrix4f Set(Matrix4f r)
+	{
+		System.arraycopy(r.m, 0, m, 0, 16);
+
+		return this;
+	}
+
+	public Matrix4f Set(float[] src, int offset)
+	{
+		System.arraycopy(src, offset, m, 0, 16);
+
+		return this;
+	}
+
+	//Writes the matrix in row-major order at the buffer's current position; the caller flips
+	public FloatBuffer Store(FloatBuffer buffer)
+	{
+		buffer.put(m);
+
+		return buffer;
 	}
 	
+	//Backing row-major array, for math code in this package that works on the raw elements
+	float[] GetData()
+	{
+		return m;
+	}
+
 	public float[][] GetM()
 	{
 		float[][] res = new float[4][4];
 		
 		for(int i = 0; i < 4; i++)
 			for(int j = 0; j < 4; j++)
-				res[i][j] = m[i][j];
+				res[i][j] = m[i * 4 + j];
 		
 		return res;
 	}
 	
 	public float Get(int x, int y)
 	{
-		return m[x][y];
+		return m[x * 4 + y];
 	}
 
 	public void SetM(float[][] m)
 	{
-		this.m = m;
+		for(int i = 0; i < 4; i++)
+			for(int j = 0; j < 4; j++)
+				this.m[i * 4 + j] = m[i][j];
 	}
 	
 	public void Set(int x, int y, float value)
 	{
-		m[x][y] = value;
+		m[x * 4 + y] = value;
 	}
 }
@@ -32,14 +32,16 @@ public class Quaternion
 	}
 
 	public Quaternion(Vector3f axis, float angle)
+	{
+		InitRotation(axis, angle);
+	}
+
+	public Quaternion InitRotation(Vector3f axis, float angle)
 	{
 		float sinHalfAngle = (float)Math.sin(angle / 2);
 		float cosHalfAngle = (float)Math.cos(angle / 2);
 
-		this.m_x = axis.GetX() * sinHalfAngle;
-		this.m_y = axis.GetY() * sinHalfAngle;
-		this.m_z = axis.GetZ() * sinHalfAngle;
-		this.m_w = cosHalfAngle;
+		return Set(axis.GetX() * sinHalfAngle, axis.GetY() * sinHalfAngle, axis.GetZ() * sinHalfAngle, cosHalfAngle);
 	}
 
 	public float Length()
@@ -54,24 +56,51 @@ public class Quaternion
 		return new Quaternion(m_x / length, m_y / length, m_z / length, m_w / length);
 	}
 	
+	public Quaternion NormalizeLocal()
+	{
+		float length = Length();
+
+		return Set(m_x / length, m_y / length, m_z / length, m_w / length);
+	}
+	
 	public Quaternion Conjugate()
 	{
 		return new Quaternion(-m_x, -m_y, -m_z, m_w);
 	}
 
+	public Quaternion ConjugateLocal()
+	{
+		return Set(-m_x, -m_y, -m_z, m_w);
+	}
+
 	public Quaternion Mul(float r)
 	{
 		return new Quaternion(m_x * r, m_y * r, m_z * r, m_w * r);
 	}
 
 	public Quaternion Mul(Quaternion r)
+	{
+		return Mul(r, new Quaternion(0, 0, 0, 0));
+	}
+
+	public Quaternion Mul(Quaternion r, Quaternion dest)
 	{
 		float w_ = m_w * r.GetW() - m_x * r.GetX() - m_y * r.GetY() - m_z * r.GetZ();
 		float x_ = m_x * r.GetW() + m_w * r.GetX() + m_y * r.GetZ() - m_z * r.GetY();
 		float y_ = m_y * r.GetW() + m_w * r.GetY() + m_z * r.GetX() - m_x * r.GetZ();
 		float z_ = m_z * r.GetW() + m_w * r.GetZ() + m_x * r.GetY() - m_y * r.GetX();
 		
-		return new Quaternion(x_, y_, z_, w_);
+		return dest.Set(x_, y_, z_, w_);
+	}
+
+	public Quaternion MulLocal(Quaternion r)
+	{
+		return Mul(r, this);
+	}
+
+	public Quaternion MulLocal(float r)
+	{
+		return Set(m_x * r, m_y * r, m_z * r, m_w * r);
 	}
 	
 	public Quaternion Mul(Vector3f r)
@@ -94,13 +123,24 @@ public class Quaternion
 		return new Quaternion(m_x + r.GetX(), m_y + r.GetY(), m_z + r.GetZ(), m_w + r.GetW());
 	}
 
+	public Quaternion SubLocal(Quaternion r)
+	{
+		return Set(m_x - r.GetX(), m_y - r.GetY(), m_z - r.GetZ(), m_w - r.GetW());
+	}
+
+	public Quaternion AddLocal(Quaternion r)
+	{
+		return Set(m_x + r.GetX(), m_y + r.GetY(), m_z + r.GetZ(), m_w + r.GetW());
+	}
+
 	public Matrix4f ToRotationMatrix()
 	{
-		Vector3f forward =  new Vector3f(2.0f * (m_x * m_z - m_w * m_y), 2.0f * (m_y * m_z + m_w * m_x), 1.0f - 2.0f * (m_x * m_x + m_y * m_y));
-		Vector3f up = new Vector3f(2.0f * (m_x * m_y + m_w * m_z), 1.0f - 2.0f * (m_x * m_x + m_z * m_z), 2.0f * (m_y * m_z - m_w * m_x));
-		Vector3f right = new Vector3f(1.0f - 2.0f * (m_y * m_y + m_z * m_z), 2.0f * (m_x * m_y - m_w * m_z), 2.0f * (m_x * m_z + m_w * m_y));
+		return new Matrix4f().InitRotation(this);
+	}
 
-		return new Matrix4f().InitRotation(forward, up, right);
+	public Matrix4f ToRotationMatrix(Matrix4f dest)
+	{
+		return dest.InitRotation(this);
 	}
 
 	public float Dot(Quaternion r)
@@ -118,6 +158,27 @@ public class Quaternion
 		return correctedDest.Sub(this).Mul(lerpFactor).Add(this).Normalized();
 	}
 
+	public Quaternion NLerp(Quaternion dest, float lerpFactor, boolean shortest, Quaternion result)
+	{
+		float destX = dest.GetX();
+		float destY = dest.GetY();
+		float destZ = dest.GetZ();
+		float destW = dest.GetW();
+
+		if(shortest && this.Dot(dest) < 0)
+		{
+			destX = -destX;
+			destY = -destY;
+			destZ = -destZ;
+			destW = -destW;
+		}
+
+		return result.Set(m_x + (destX - m_x) * lerpFactor,
+		                  m_y + (destY - m_y) * lerpFactor,
+		                  m_z + (destZ - m_z) * lerpFactor,
+		                  m_w + (destW - m_w) * lerpFactor).NormalizeLocal();
+	}
+
 	public Quaternion SLerp(Quaternion dest, float lerpFactor, boolean shortest)
 	{
 		final float EPSILON = 1e3f;
@@ -194,32 +255,62 @@ public class Quaternion
 
 	public Vector3f GetForward()
 	{
-		return new Vector3f(0,0,1).Rotate(this);
+		return GetForward(new Vector3f(0,0,0));
+	}
+
+	public Vector3f GetForward(Vector3f dest)
+	{
+		return dest.Set(0,0,1).Rotate(this, dest);
 	}
 
 	public Vector3f GetBack()
 	{
-		return new Vector3f(0,0,-1).Rotate(this);
+		return GetBack(new Vector3f(0,0,0));
+	}
+
+	public Vector3f GetBack(Vector3f dest)
+	{
+		return dest.Set(0,0,-1).Rotate(this, dest);
 	}
 
 	public Vector3f GetUp()
 	{
-		return new Vector3f(0,1,0).Rotate(this);
+		return GetUp(new Vector3f(0,0,0));
+	}
+
+	public Vector3f GetUp(Vector3f dest)
+	{
+		return dest.Set(0,1,0).Rotate(this, dest);
 	}
 
 	public Vector3f GetDown()
 	{
-		return new Vector3f(0,-1,0).Rotate(this);
+		return GetDown(new Vector3f(0,0,0));
+	}
+
+	public Vector3f GetDown(Vector3f dest)
+	{
+		return dest.Set(0,-1,0).Rotate(this, dest);
 	}
 
 	public Vector3f GetRight()
 	{
-		return new Vector3f(1,0,0).Rotate(this);
+		return GetRight(new Vector3f(0,0,0));
+	}
+
+	public Vector3f GetRight(Vector3f dest)
+	{
+		return dest.Set(1,0,0).Rotate(this, dest);
 	}
 
 	public Vector3f GetLeft()
 	{
-		return new Vector3f(-1,0,0).Rotate(this);
+		return GetLeft(new Vector3f(0,0,0));
+	}
+
+	public Vector3f GetLeft(Vector3f dest)
+	{
+		return dest.Set(-1,0,0).Rotate(this, dest);
 	}
 
 	public Quaternion Set(float x, float y, float z, float w) { this.m_x = x; this.m_y = y; this.m_z = z; this.m_w = w; return this; }
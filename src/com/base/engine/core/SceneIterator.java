@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//Depth-first, parent-before-children walk over a GameObject and everything attached below it. It reads the live
+//child lists, so keep one instance around and Reset it instead of allocating a new iterator per query.
+public class SceneIterator implements Iterator<GameObject>
+{
+	private GameObject[] m_stack;
+	private int          m_top;
+
+	public SceneIterator()
+	{
+		m_stack = new GameObject[32];
+		m_top = 0;
+	}
+
+	public SceneIterator(GameObject root)
+	{
+		this();
+		Reset(root);
+	}
+
+	public SceneIterator Reset(GameObject root)
+	{
+		for(int i = 0; i < m_top; i++)
+			m_stack[i] = null;
+
+		m_top = 0;
+
+		if(root != null)
+			m_stack[m_top++] = root;
+
+		return this;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return m_top > 0;
+	}
+
+	@Override
+	public GameObject next()
+	{
+		if(m_top == 0)
+			throw new NoSuchElementException();
+
+		GameObject object = m_stack[--m_top];
+		m_stack[m_top] = null;
+
+		int numChildren = object.GetNumChildren();
+
+		if(m_top + numChildren > m_stack.length)
+		{
+			GameObject[] stack = new GameObject[Math.max(m_stack.length * 2, m_top + numChildren)];
+			System.arraycopy(m_stack, 0, stack, 0, m_top);
+			m_stack = stack;
+		}
+
+		for(int i = numChildren - 1; i >= 0; i--)
+			m_stack[m_top++] = object.GetChild(i);
+
+		return object;
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.Arrays;
+
+//Per-thread temporaries for engine internals. Everything taken after Push() is handed back by the matching Pop(),
+//so hot paths can borrow math objects without allocating once the pool has grown to its working size.
+public class ScratchPool
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final ThreadLocal<ScratchPool> s_pools = new ThreadLocal<ScratchPool>()
+	{
+		@Override
+		protected ScratchPool initialValue()
+		{
+			return new ScratchPool();
+		}
+	};
+
+	private Vector2f[]   m_vector2fs;
+	private Vector3f[]   m_vector3fs;
+	private Quaternion[] m_quaternions;
+	private Matrix4f[]   m_matrices;
+
+	private int          m_vector2fCount;
+	private int          m_vector3fCount;
+	private int          m_quaternionCount;
+	private int          m_matrixCount;
+
+	private int[]        m_marks;
+	private int          m_depth;
+
+	public static ScratchPool Get()
+	{
+		return s_pools.get();
+	}
+
+	private ScratchPool()
+	{
+		m_vector2fs = new Vector2f[INITIAL_CAPACITY];
+		m_vector3fs = new Vector3f[INITIAL_CAPACITY];
+		m_quaternions = new Quaternion[INITIAL_CAPACITY];
+		m_matrices = new Matrix4f[INITIAL_CAPACITY];
+		m_marks = new int[INITIAL_CAPACITY * 4];
+		m_depth = 0;
+	}
+
+	public void Push()
+	{
+		if(m_depth * 4 == m_marks.length)
+			m_marks = Arrays.copyOf(m_marks, m_marks.length * 2);
+
+		m_marks[m_depth * 4    ] = m_vector2fCount;
+		m_marks[m_depth * 4 + 1] = m_vector3fCount;
+		m_marks[m_depth * 4 + 2] = m_quaternionCount;
+		m_marks[m_depth * 4 + 3] = m_matrixCount;
+		m_depth++;
+	}
+
+	public void Pop()
+	{
+		if(m_depth == 0)
+			throw new IllegalStateException("ScratchPool.Pop called without a matching Push");
+
+		m_depth--;
+		m_vector2fCount = m_marks[m_depth * 4    ];
+		m_vector3fCount = m_marks[m_depth * 4 + 1];
+		m_quaternionCount = m_marks[m_depth * 4 + 2];
+		m_matrixCount = m_marks[m_depth * 4 + 3];
+	}
+
+	public Vector2f NextVector2f()
+	{
+		if(m_vector2fCount == m_vector2fs.length)
+			m_vector2fs = Arrays.copyOf(m_vector2fs, m_vector2fs.length * 2);
+
+		if(m_vector2fs[m_vector2fCount] == null)
+			m_vector2fs[m_vector2fCount] = new Vector2f(0, 0);
+
+		return m_vector2fs[m_vector2fCount++];
+	}
+
+	public Vector3f NextVector3f()
+	{
+		if(m_vector3fCount == m_vector3fs.length)
+			m_vector3fs = Arrays.copyOf(m_vector3fs, m_vector3fs.length * 2);
+
+		if(m_vector3fs[m_vector3fCount] == null)
+			m_vector3fs[m_vector3fCount] = new Vector3f(0, 0, 0);
+
+		return m_vector3fs[m_vector3fCount++];
+	}
+
+	public Quaternion NextQuaternion()
+	{
+		if(m_quaternionCount == m_quaternions.length)
+			m_quaternions = Arrays.copyOf(m_quaternions, m_quaternions.length * 2);
+
+		if(m_quaternions[m_quaternionCount] == null)
+			m_quaternions[m_quaternionCount] = new Quaternion(0, 0, 0, 1);
+
+		return m_quaternions[m_quaternionCount++];
+	}
+
+	public Matrix4f NextMatrix4f()
+	{
+		if(m_matrixCount == m_matrices.length)
+			m_matrices = Arrays.copyOf(m_matrices, m_matrices.length * 2);
+
+		if(m_matrices[m_matrixCount] == null)
+			m_matrices[m_matrixCount] = new Matrix4f();
+
+		return m_matrices[m_matrixCount++];
+	}
+}
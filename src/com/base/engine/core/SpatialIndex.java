@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import com.base.engine.components.GameComponent;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.function.Consumer;
+
+//Tracks the world-space bounds of components (meshes, lights) in a DynamicAABBTree so visibility and proximity
+//queries don't have to walk the scene. Refresh re-bounds only entries whose transform is on the store's change list,
+//so a mostly static scene costs close to nothing per frame.
+public class SpatialIndex
+{
+	public static class Entry
+	{
+		private final SpatialIndex  m_owner;
+		private final GameComponent m_component;
+		private final AABB          m_localBounds;
+		private float               m_radius;
+		private final AABB          m_worldBounds;
+		private int                 m_proxy;
+		private int                 m_index;
+		private Entry               m_nextOnTransform;
+		private int                 m_visibleFrame;
+		private boolean             m_stale;
+
+		private Entry(SpatialIndex owner, GameComponent component, AABB localBounds, float radius)
+		{
+			this.m_owner = owner;
+			this.m_component = component;
+			this.m_localBounds = localBounds;
+			this.m_radius = radius;
+			this.m_worldBounds = new AABB();
+			this.m_visibleFrame = -1;
+		}
+
+		//Only meaningful for entries added with a radius; takes effect on the next Refresh
+		public void SetRadius(float radius)
+		{
+			this.m_radius = radius;
+
+			if(!m_stale)
+			{
+				m_stale = true;
+				m_owner.m_staleEntries.add(this);
+			}
+		}
+
+		private Transform GetTransform()    { return m_component.GetTransform(); }
+
+		public GameComponent GetComponent() { return m_component; }
+		public AABB GetWorldBounds()        { return m_worldBounds; }
+		public int GetVisibleFrame()        { return m_visibleFrame; }
+	}
+
+	private DynamicAABBTree<Entry> m_tree;
+	private ArrayList<Entry>       m_entries;
+	private TransformStore         m_store;
+
+	//Entries sharing a transform are chained through m_nextOnTransform
+	private IdentityHashMap<Transform, Entry> m_byTransform;
+	private ArrayList<Entry>       m_staleEntries;
+	private int                    m_changeFrame;
+	private int                    m_numChangesSeen;
+	private Matrix4f               m_matrix;
+	private Vector3f               m_position;
+	private int                    m_markFrame;
+	private Consumer<Entry>        m_markVisible;
+
+	public SpatialIndex()
+	{
+		this(TransformStore.GetDefault());
+	}
+
+	//Every tracked component's transform must belong to store
+	public SpatialIndex(TransformStore store)
+	{
+		m_tree = new DynamicAABBTree<Entry>();
+		m_entries = new ArrayList<Entry>();
+		m_store = store;
+		m_byTransform = new IdentityHashMap<Transform, Entry>();
+		m_staleEntries = new ArrayList<Entry>();
+		m_changeFrame = store.GetChangeFrame();
+		m_numChangesSeen = 0;
+		m_matrix = new Matrix4f();
+		m_position = new Vector3f(0, 0, 0);
+		m_markVisible = entry -> entry.m_visibleFrame = m_markFrame;
+	}
+
+	//Tracks a component whose extent is the given box in its own transform's space
+	public Entry Add(GameComponent component, AABB localBounds)
+	{
+		return Add(new Entry(this, component, new AABB().Set(localBounds), 0));
+	}
+
+	//Tracks a component whose extent is a sphere of the given world-space radius around its position, like a light
+	public Entry Add(GameComponent component, float radius)
+	{
+		return Add(new Entry(this, component, null, radius));
+	}
+
+	private Entry Add(Entry entry)
+	{
+		Transform transform = entry.GetTransform();
+
+		if(transform.GetStore() != m_store)
+			throw new IllegalArgumentException("Component transform belongs to a different TransformStore");
+
+		entry.m_nextOnTransform = m_byTransform.put(transform, entry);
+
+		CalcWorldBounds(entry);
+
+		entry.m_proxy = m_tree.CreateProxy(entry.m_worldBounds, entry);
+		entry.m_index = m_entries.size();
+		m_entries.add(entry);
+
+		return entry;
+	}
+
+	public void Remove(Entry entry)
+	{
+		m_tree.DestroyProxy(entry.m_proxy);
+		Unlink(entry);
+		m_staleEntries.remove(entry);
+
+		//Swap the last entry into the hole to keep the list dense
+		Entry last = m_entries.remove(m_entries.size() - 1);
+
+		if(last != entry)
+		{
+			m_entries.set(entry.m_index, last);
+			last.m_index = entry.m_index;
+		}
+	}
+
+	private void Unlink(Entry entry)
+	{
+		Transform transform = entry.GetTransform();
+		Entry first = m_byTransform.get(transform);
+
+		if(first == entry)
+		{
+			if(entry.m_nextOnTransform == null)
+				m_byTransform.remove(transform);
+			else
+				m_byTransform.put(transform, entry.m_nextOnTransform);
+		}
+		else
+		{
+			Entry previous = first;
+
+			while(previous != null && previous.m_nextOnTransform != entry)
+				previous = previous.m_nextOnTransform;
+
+			if(previous != null)
+				previous.m_nextOnTransform = entry.m_nextOnTransform;
+		}
+
+		entry.m_nextOnTransform = null;
+	}
+
+	//Re-bounds entries whose transform moved since the last Refresh. Only the part of the store's change list not
+	//seen yet is visited, so calling this more than once per frame is cheap.
+	public void Refresh()
+	{
+		int numChanged = m_store.GetNumChanged();
+		int changeFrame = m_store.GetChangeFrame();
+
+		if(changeFrame != m_changeFrame)
+		{
+			m_changeFrame = changeFrame;
+			m_numChangesSeen = 0;
+		}
+
+		for(int i = m_numChangesSeen; i < numChanged; i++)
+			for(Entry entry = m_byTransform.get(m_store.GetChanged(i)); entry != null; entry = entry.m_nextOnTransform)
+				Rebound(entry);
+
+		m_numChangesSeen = numChanged;
+
+		for(int i = 0; i < m_staleEntries.size(); i++)
+			if(m_staleEntries.get(i).m_stale)
+				Rebound(m_staleEntries.get(i));
+
+		m_staleEntries.clear();
+	}
+
+	private void Rebound(Entry entry)
+	{
+		CalcWorldBounds(entry);
+		m_tree.MoveProxy(entry.m_proxy, entry.m_worldBounds);
+	}
+
+	private void CalcWorldBounds(Entry entry)
+	{
+		Transform transform = entry.GetTransform();
+
+		entry.m_stale = false;
+
+		if(entry.m_localBounds != null)
+			entry.m_localBounds.Transform(transform.GetTransformation(m_matrix), entry.m_worldBounds);
+		else
+		{
+			transform.GetTransformedPos(m_position);
+			entry.m_worldBounds.GetMin().Set(m_position.GetX() - entry.m_radius, m_position.GetY() - entry.m_radius, m_position.GetZ() - entry.m_radius);
+			entry.m_worldBounds.GetMax().Set(m_position.GetX() + entry.m_radius, m_position.GetY() + entry.m_radius, m_position.GetZ() + entry.m_radius);
+		}
+	}
+
+	//Stamps every entry at least partly inside the frustum with frame, readable through Entry.GetVisibleFrame
+	public void MarkVisible(Frustum frustum, int frame)
+	{
+		m_markFrame = frame;
+		m_tree.Query(frustum, m_markVisible);
+	}
+
+	public void Query(Frustum frustum, Consumer<Entry> visitor)        { m_tree.Query(frustum, visitor); }
+	public void Query(AABB bounds, Consumer<Entry> visitor)            { m_tree.Query(bounds, visitor); }
+	public void Query(BoundingSphere sphere, Consumer<Entry> visitor)  { m_tree.Query(sphere, visitor); }
+
+	public void Raycast(Vector3f origin, Vector3f direction, float maxDistance, Consumer<Entry> visitor)
+	{
+		m_tree.Raycast(origin, direction, maxDistance, visitor);
+	}
+
+	//The entry whose bounds the ray enters first, or null
+	public Entry RaycastClosest(Vector3f origin, Vector3f direction, float maxDistance)
+	{
+		int proxy = m_tree.RaycastClosest(origin, direction, maxDistance);
+
+		return proxy == DynamicAABBTree.NULL_NODE ? null : m_tree.GetData(proxy);
+	}
+
+	public int GetNumEntries()
+	{
+		return m_entries.size();
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.base.engine.core;
+
+//What Input reads on the simulation thread in threaded mode. LWJGL updates the keyboard and mouse in Display.update
+//and they may only be touched on the GL thread, so that thread samples them once per frame and publishes the copy
+//through a TripleBuffer; the simulation thread picks up the newest copy before each tick. Cursor changes go back to
+//the GL thread as main-thread jobs.
+class ThreadedInput implements InputSource
+{
+	private static class Sample
+	{
+		private final boolean[] m_keys = new boolean[Input.NUM_KEYCODES];
+		private final boolean[] m_mouse = new boolean[Input.NUM_MOUSEBUTTONS];
+		private int             m_mouseX;
+		private int             m_mouseY;
+		private int             m_warpsApplied;
+	}
+
+	private final InputSource          m_devices;
+	private final JobSystem            m_jobs;
+	private final TripleBuffer<Sample> m_samples;
+
+	//GL thread
+	private int m_warpsApplied;
+
+	//Simulation thread. A sample taken before the latest SetMousePosition reached the GL thread still has the old
+	//position; the position set is kept until a sample catches up, so e.g. FreeLook doesn't apply a delta twice.
+	private Sample m_current;
+	private int    m_warpsIssued;
+	private int    m_mouseX;
+	private int    m_mouseY;
+
+	//On the GL thread, before the simulation thread starts
+	public ThreadedInput(InputSource devices, JobSystem jobs)
+	{
+		m_devices = devices;
+		m_jobs = jobs;
+		m_samples = new TripleBuffer<Sample>(new Sample(), new Sample(), new Sample());
+
+		Sample();
+		m_current = m_samples.Acquire();
+		m_mouseX = m_current.m_mouseX;
+		m_mouseY = m_current.m_mouseY;
+	}
+
+	//GL thread, after each Display.update
+	public void Sample()
+	{
+		Sample sample = m_samples.GetWriteBuffer();
+
+		for(int i = 0; i < Input.NUM_KEYCODES; i++)
+			sample.m_keys[i] = m_devices.IsKeyDown(i);
+
+		for(int i = 0; i < Input.NUM_MOUSEBUTTONS; i++)
+			sample.m_mouse[i] = m_devices.IsMouseButtonDown(i);
+
+		sample.m_mouseX = m_devices.GetMouseX();
+		sample.m_mouseY = m_devices.GetMouseY();
+		sample.m_warpsApplied = m_warpsApplied;
+
+		m_samples.Publish();
+	}
+
+	//Simulation thread, before each tick
+	public void Acquire()
+	{
+		if(!m_samples.HasNew())
+			return;
+
+		m_current = m_samples.Acquire();
+
+		if(m_current.m_warpsApplied == m_warpsIssued)
+		{
+			m_mouseX = m_current.m_mouseX;
+			m_mouseY = m_current.m_mouseY;
+		}
+	}
+
+	@Override
+	public boolean IsKeyDown(int keyCode)
+	{
+		return m_current.m_keys[keyCode];
+	}
+
+	@Override
+	public boolean IsMouseButtonDown(int mouseButton)
+	{
+		return m_current.m_mouse[mouseButton];
+	}
+
+	@Override
+	public int GetMouseX()
+	{
+		return m_mouseX;
+	}
+
+	@Override
+	public int GetMouseY()
+	{
+		return m_mouseY;
+	}
+
+	//The cursor has usually moved on by the time the GL thread applies this; that motion is carried over rather than
+	//lost, as it would have been seen had the position been set right away
+	@Override
+	public void SetMousePosition(int x, int y)
+	{
+		int seenX = m_mouseX;
+		int seenY = m_mouseY;
+
+		m_mouseX = x;
+		m_mouseY = y;
+		m_warpsIssued++;
+
+		m_jobs.ScheduleOnMainThread(() ->
+		{
+			m_devices.SetMousePosition(x + m_devices.GetMouseX() - seenX, y + m_devices.GetMouseY() - seenY);
+			m_warpsApplied++;
+		});
+	}
+
+	@Override
+	public void SetCursor(boolean enabled)
+	{
+		m_jobs.ScheduleOnMainThread(() -> m_devices.SetCursor(enabled));
+	}
+}
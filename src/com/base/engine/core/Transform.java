@@ -16,52 +16,54 @@
 
 package com.base.engine.core;
 
+//A handle into a TransformStore, which owns the packed local and world data. The position, rotation and scale
+//objects are views that write through to the store whenever they are modified. World getters read the store as of
+//its last Update, which the engine runs at fixed points in the tick, so a local change shows up in them only after
+//the next flush.
 public class Transform
 {
-	private Transform  m_parent;
-	private Matrix4f   m_parentMatrix;
+	//Not a slot and not NO_PARENT, so reads of a released transform fail on the store's arrays; writes check for it
+	private static final int RELEASED = -2;
 
-	private Vector3f   m_pos;
-	private Quaternion m_rot;
-	private Vector3f   m_scale;
+	private TransformStore m_store;
+	private int            m_index;
+	private Transform      m_parent;
 
-	private Vector3f   m_oldPos;
-	private Quaternion m_oldRot;
-	private Vector3f   m_oldScale;
+	private Vector3f       m_pos;
+	private Quaternion     m_rot;
+	private Vector3f       m_scale;
+
+	//The store's change frame in which this was last added to its change list
+	int                    m_changeFrame;
 
 	public Transform()
 	{
-		m_pos = new Vector3f(0,0,0);
-		m_rot = new Quaternion(0,0,0,1);
-		m_scale = new Vector3f(1,1,1);
-
-		m_parentMatrix = new Matrix4f().InitIdentity();
+		this(TransformStore.GetDefault());
 	}
 
-	public void Update()
+	public Transform(TransformStore store)
 	{
-		if(m_oldPos != null)
-		{
-			m_oldPos.Set(m_pos);
-			m_oldRot.Set(m_rot);
-			m_oldScale.Set(m_scale);
-		}
-		else
-		{
-			m_oldPos = new Vector3f(0,0,0).Set(m_pos).Add(1.0f);
-			m_oldRot = new Quaternion(0,0,0,0).Set(m_rot).Mul(0.5f);
-			m_oldScale = new Vector3f(0,0,0).Set(m_scale).Add(1.0f);
-		}
+		m_pos = new TrackedVector3f(this, 0,0,0);
+		m_rot = new TrackedQuaternion(this, 0,0,0,1);
+		m_scale = new TrackedVector3f(this, 1,1,1);
+
+		m_store = store;
+		m_index = store.Add(this);
 	}
 
 	public void Rotate(Vector3f axis, float angle)
 	{
-		m_rot = new Quaternion(axis, angle).Mul(m_rot).Normalized();
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+
+		scratch.NextQuaternion().InitRotation(axis, angle).Mul(m_rot, m_rot).NormalizeLocal();
+
+		scratch.Pop();
 	}
 
 	public void LookAt(Vector3f point, Vector3f up)
 	{
-		m_rot = GetLookAtRotation(point, up);
+		m_rot.Set(GetLookAtRotation(point, up));
 	}
 
 	public Quaternion GetLookAtRotation(Vector3f point, Vector3f up)
@@ -69,58 +71,132 @@ public class Transform
 		return new Quaternion(new Matrix4f().InitRotation(point.Sub(m_pos).Normalized(), up));
 	}
 
+	//Whether the world matrix changed, directly or through a parent, since the store's last ClearChanges, as of its
+	//last Update
 	public boolean HasChanged()
 	{
-		if(m_parent != null && m_parent.HasChanged())
-			return true;
+		return m_store.HasChanged(this);
+	}
 
-		if(!m_pos.equals(m_oldPos))
-			return true;
+	public Matrix4f GetTransformation()
+	{
+		return GetTransformation(new Matrix4f());
+	}
 
-		if(!m_rot.equals(m_oldRot))
-			return true;
+	public Matrix4f GetTransformation(Matrix4f dest)
+	{
+		return m_store.GetWorldMatrix(m_index, dest);
+	}
 
-		if(!m_scale.equals(m_oldScale))
-			return true;
+	//The world matrix alpha of the way from the end of the previous tick to now, for rendering between ticks
+	public Matrix4f GetInterpolatedTransformation(float alpha, Matrix4f dest)
+	{
+		return m_store.GetInterpolatedWorldMatrix(m_index, alpha, dest);
+	}
 
-		return false;
+	public Vector3f GetInterpolatedPos(float alpha, Vector3f dest)
+	{
+		return m_store.GetInterpolatedWorldPosition(m_index, alpha, dest);
 	}
 
-	public Matrix4f GetTransformation()
+	public Quaternion GetInterpolatedRot(float alpha, Quaternion dest)
 	{
-		Matrix4f translationMatrix = new Matrix4f().InitTranslation(m_pos.GetX(), m_pos.GetY(), m_pos.GetZ());
-		Matrix4f rotationMatrix = m_rot.ToRotationMatrix();
-		Matrix4f scaleMatrix = new Matrix4f().InitScale(m_scale.GetX(), m_scale.GetY(), m_scale.GetZ());
+		return m_store.GetInterpolatedWorldRotation(m_index, alpha, dest);
+	}
 
-		return GetParentMatrix().Mul(translationMatrix.Mul(rotationMatrix.Mul(scaleMatrix)));
+	//Renders this transform at its new state instead of blending from where it was; call it when teleporting. Changes
+	//made later in the same tick count as part of the teleport.
+	public void ResetInterpolation()
+	{
+		m_store.ResetInterpolation(m_index);
 	}
 
-	private Matrix4f GetParentMatrix()
+	//Changes whenever the world matrix or rotation of this transform is recomputed
+	public int GetWorldVersion()
 	{
-		if(m_parent != null && m_parent.HasChanged())
-			m_parentMatrix = m_parent.GetTransformation();
+		return m_store.GetWorldVersion(m_index);
+	}
 
-		return m_parentMatrix;
+	private void OnLocalChanged()
+	{
+		if(m_index == RELEASED)
+			throw new IllegalStateException("Transform has been released");
+
+		m_store.SetLocal(m_index, m_pos.GetX(), m_pos.GetY(), m_pos.GetZ(),
+		                 m_rot.GetX(), m_rot.GetY(), m_rot.GetZ(), m_rot.GetW(),
+		                 m_scale.GetX(), m_scale.GetY(), m_scale.GetZ());
 	}
 
+	//Detaching a released transform does nothing, so removing a destroyed object from its parent is safe
 	public void SetParent(Transform parent)
 	{
+		if(m_index == RELEASED)
+		{
+			if(parent != null)
+				throw new IllegalStateException("Transform has been released");
+
+			return;
+		}
+
+		if(parent != null && parent.m_store != m_store)
+			throw new IllegalArgumentException("Parent transform belongs to a different TransformStore");
+		if(parent != null && parent.m_index == RELEASED)
+			throw new IllegalStateException("Parent transform has been released");
+
 		this.m_parent = parent;
+		m_store.SetParent(m_index, parent == null ? TransformStore.NO_PARENT : parent.m_index);
+	}
+
+	//Gives the transform's slot back to its store; the transform must not be used afterwards. Releasing twice is a no-op.
+	public void Release()
+	{
+		if(m_index == RELEASED)
+			return;
+
+		m_store.Remove(m_index);
+		m_index = RELEASED;
+		m_parent = null;
+	}
+
+	public Transform GetParent()
+	{
+		return m_parent;
 	}
 
 	public Vector3f GetTransformedPos()
 	{
-		return GetParentMatrix().Transform(m_pos);
+		return GetTransformedPos(new Vector3f(0,0,0));
+	}
+
+	public Vector3f GetTransformedPos(Vector3f dest)
+	{
+		return m_store.GetWorldPosition(m_index, dest);
 	}
 
 	public Quaternion GetTransformedRot()
 	{
-		Quaternion parentRotation = new Quaternion(0,0,0,1);
+		return GetTransformedRot(new Quaternion(0,0,0,1));
+	}
+
+	public Quaternion GetTransformedRot(Quaternion dest)
+	{
+		return m_store.GetWorldRotation(m_index, dest);
+	}
+
+	public TransformStore GetStore()
+	{
+		return m_store;
+	}
 
-		if(m_parent != null)
-			parentRotation = m_parent.GetTransformedRot();
+	//Only valid until the hierarchy next changes; the store reorders entries to keep parents first
+	public int GetIndex()
+	{
+		return m_index;
+	}
 
-		return parentRotation.Mul(m_rot);
+	void SetIndex(int index)
+	{
+		this.m_index = index;
 	}
 
 	public Vector3f GetPos()
@@ -130,7 +206,7 @@ public class Transform
 	
 	public void SetPos(Vector3f pos)
 	{
-		this.m_pos = pos;
+		this.m_pos.Set(pos);
 	}
 
 	public Quaternion GetRot()
@@ -140,7 +216,7 @@ public class Transform
 
 	public void SetRot(Quaternion rotation)
 	{
-		this.m_rot = rotation;
+		this.m_rot.Set(rotation);
 	}
 
 	public Vector3f GetScale()
@@ -150,6 +226,96 @@ public class Transform
 
 	public void SetScale(Vector3f scale)
 	{
-		this.m_scale = scale;
+		this.m_scale.Set(scale);
+	}
+
+	//Components and game code edit GetPos()/GetRot()/GetScale() in place, so those objects report their own writes
+	private static class TrackedVector3f extends Vector3f
+	{
+		private final Transform m_owner;
+
+		public TrackedVector3f(Transform owner, float x, float y, float z)
+		{
+			super(x, y, z);
+			this.m_owner = owner;
+		}
+
+		@Override
+		public Vector3f Set(float x, float y, float z)
+		{
+			super.Set(x, y, z);
+			m_owner.OnLocalChanged();
+
+			return this;
+		}
+
+		@Override
+		public void SetX(float x)
+		{
+			super.SetX(x);
+			m_owner.OnLocalChanged();
+		}
+
+		@Override
+		public void SetY(float y)
+		{
+			super.SetY(y);
+			m_owner.OnLocalChanged();
+		}
+
+		@Override
+		public void SetZ(float z)
+		{
+			super.SetZ(z);
+			m_owner.OnLocalChanged();
+		}
+	}
+
+	private static class TrackedQuaternion extends Quaternion
+	{
+		private final Transform m_owner;
+
+		public TrackedQuaternion(Transform owner, float x, float y, float z, float w)
+		{
+			super(x, y, z, w);
+			this.m_owner = owner;
+		}
+
+		@Override
+		public Quaternion Set(float x, float y, float z, float w)
+		{
+			super.Set(x, y, z, w);
+			m_owner.OnLocalChanged();
+
+			return this;
+		}
+
+		@Override
+		public void SetX(float x)
+		{
+			super.SetX(x);
+			m_owner.OnLocalChanged();
+		}
+
+		@Override
+		public void SetY(float y)
+		{
+			super.SetY(y);
+			m_owner.OnLocalChanged();
+		}
+
+		@Override
+		public void SetZ(float z)
+		{
+			super.SetZ(z);
+			m_owner.OnLocalChanged();
+		}
+
+		@Override
+		public void SetW(float w)
+		{
+			super.SetW(w);
+			m_owner.OnLocalChanged();
+		}
 	}
 }
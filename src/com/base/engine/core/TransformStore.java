@@ -0,0 +1,697 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Packed storage for every Transform in a hierarchy. Entries are kept in depth-first order, so a parent always
+//comes before its children and every subtree is one contiguous range; world matrices are then a single linear pass.
+//Local writes, Update and the world getters are synchronized so components updating in parallel can write their own
+//transforms and read others. Reparenting reorders indices and must only happen while no other thread uses the store.
+//Every transform whose world data is recomputed is listed once per change frame, so systems can visit only what moved.
+public class TransformStore
+{
+	public static final int NO_PARENT = -1;
+
+	private static final int NO_PREVIOUS = Integer.MIN_VALUE;
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+	private static final int PARALLEL_GRAIN = 1024;
+
+	private static TransformStore s_default = new TransformStore();
+
+	private Transform[] m_handles;
+	private int[]       m_parents;
+	private int[]       m_subtreeEnds;
+
+	private float[]     m_positions;
+	private float[]     m_rotations;
+	private float[]     m_scales;
+
+	private float[]     m_worldMatrices;
+	private float[]     m_worldRotations;
+	private int[]       m_worldVersions;
+	private int[]       m_parentVersions;
+	private boolean[]   m_localDirty;
+
+	//World state as of the end of the previous tick, for render interpolation. Copied the first time an entry is
+	//recomputed within a tick; m_prevTicks[i] != m_tick means the entry hasn't moved this tick.
+	private float[]     m_prevWorldMatrices;
+	private float[]     m_prevWorldRotations;
+	private int[]       m_prevTicks;
+	private int         m_tick;
+	private float[]     m_interpolationScratch;
+
+	//Spare arrays a reorder writes into before swapping them with the ones above, plus its working space; kept at
+	//the same capacity so reparenting every frame (e.g. pooled spawns) doesn't allocate
+	private Transform[] m_backHandles;
+	private int[]       m_backParents;
+	private float[]     m_backPositions;
+	private float[]     m_backRotations;
+	private float[]     m_backScales;
+	private float[]     m_backWorldMatrices;
+	private float[]     m_backWorldRotations;
+	private int[]       m_backWorldVersions;
+	private int[]       m_backParentVersions;
+	private boolean[]   m_backLocalDirty;
+	private float[]     m_backPrevWorldMatrices;
+	private float[]     m_backPrevWorldRotations;
+	private int[]       m_backPrevTicks;
+	private int[]       m_sortChildStarts;
+	private int[]       m_sortChildren;
+	private int[]       m_sortFill;
+	private int[]       m_sortOrder;
+	private int[]       m_sortStack;
+	private int[]       m_sortNewIndices;
+
+	private int         m_size;
+	private int         m_numRemoved;
+	private int         m_firstDirty;
+	private boolean     m_ordered;
+	private int         m_parallelThreshold;
+
+	//Set while parallel component updates run, so world state stays as flushed before they forked and what a worker
+	//reads doesn't depend on how the others were scheduled
+	private boolean     m_frozen;
+
+	//Transforms whose world matrix changed since ClearChanges, each once; entries may since have been released
+	private Transform[]   m_changed;
+	private AtomicInteger m_numChanged;
+	private int           m_changeFrame;
+
+	public static TransformStore GetDefault()
+	{
+		return s_default;
+	}
+
+	public TransformStore()
+	{
+		m_handles = new Transform[INITIAL_CAPACITY];
+		m_parents = new int[INITIAL_CAPACITY];
+		m_subtreeEnds = new int[INITIAL_CAPACITY];
+
+		m_positions = new float[INITIAL_CAPACITY * 3];
+		m_rotations = new float[INITIAL_CAPACITY * 4];
+		m_scales = new float[INITIAL_CAPACITY * 3];
+
+		m_worldMatrices = new float[INITIAL_CAPACITY * 16];
+		m_worldRotations = new float[INITIAL_CAPACITY * 4];
+		m_worldVersions = new int[INITIAL_CAPACITY];
+		m_parentVersions = new int[INITIAL_CAPACITY];
+		m_localDirty = new boolean[INITIAL_CAPACITY];
+
+		m_prevWorldMatrices = new float[INITIAL_CAPACITY * 16];
+		m_prevWorldRotations = new float[INITIAL_CAPACITY * 4];
+		m_prevTicks = new int[INITIAL_CAPACITY];
+		m_tick = 0;
+		m_interpolationScratch = new float[16 * 3 + 4];
+
+		m_size = 0;
+		m_numRemoved = 0;
+		m_firstDirty = Integer.MAX_VALUE;
+		m_ordered = true;
+		m_parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+		m_changed = new Transform[INITIAL_CAPACITY];
+		m_numChanged = new AtomicInteger(0);
+		m_changeFrame = 1;
+	}
+
+	synchronized int Add(Transform handle)
+	{
+		if(m_size == m_parents.length)
+			Grow(m_size * 2);
+
+		int index = m_size++;
+
+		m_handles[index] = handle;
+		m_parents[index] = NO_PARENT;
+		m_subtreeEnds[index] = index + 1;
+		m_worldVersions[index] = 0;
+		m_parentVersions[index] = 0;
+		m_prevTicks[index] = NO_PREVIOUS;
+
+		SetLocal(index, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1);
+
+		return index;
+	}
+
+	synchronized void SetParent(int index, int parentIndex)
+	{
+		if(m_frozen)
+			throw new IllegalStateException("The hierarchy can't change during a parallel update");
+
+		m_parents[index] = parentIndex;
+		m_ordered = false;
+		MarkDirty(index);
+	}
+
+	//Grows the arrays once ahead of bulk creation
+	public synchronized void Reserve(int capacity)
+	{
+		if(capacity > m_parents.length)
+			Grow(capacity);
+	}
+
+	//The slot is reclaimed by the next reorder; children left behind become roots
+	synchronized void Remove(int index)
+	{
+		//Counting a slot twice would make the next reorder lose track of its entries
+		if(m_handles[index] == null)
+			return;
+
+		m_handles[index] = null;
+		m_parents[index] = NO_PARENT;
+		m_localDirty[index] = false;
+		m_numRemoved++;
+		m_ordered = false;
+	}
+
+	synchronized void SetLocal(int index, float px, float py, float pz, float rx, float ry, float rz, float rw, float sx, float sy, float sz)
+	{
+		m_positions[index * 3    ] = px;
+		m_positions[index * 3 + 1] = py;
+		m_positions[index * 3 + 2] = pz;
+
+		m_rotations[index * 4    ] = rx;
+		m_rotations[index * 4 + 1] = ry;
+		m_rotations[index * 4 + 2] = rz;
+		m_rotations[index * 4 + 3] = rw;
+
+		m_scales[index * 3    ] = sx;
+		m_scales[index * 3 + 1] = sy;
+		m_scales[index * 3 + 2] = sz;
+
+		MarkDirty(index);
+	}
+
+	private void MarkDirty(int index)
+	{
+		m_localDirty[index] = true;
+
+		if(index < m_firstDirty)
+			m_firstDirty = index;
+	}
+
+	public synchronized boolean IsDirty()
+	{
+		return m_firstDirty != Integer.MAX_VALUE || !m_ordered;
+	}
+
+	public synchronized void Update()
+	{
+		if(m_frozen)
+			throw new IllegalStateException("TransformStore can't update during a parallel update");
+
+		if(!IsDirty())
+			return;
+
+		if(!m_ordered)
+		{
+			Sort();
+			m_firstDirty = 0;
+		}
+
+		int start = m_firstDirty;
+		m_firstDirty = Integer.MAX_VALUE;
+
+		//A transform is listed at most once per frame, so this bounds what the pass below can append
+		if(m_numChanged.get() + m_size - start > m_changed.length)
+			m_changed = Arrays.copyOf(m_changed, Math.max(m_changed.length * 2, m_numChanged.get() + m_size - start));
+
+		if(m_size - start >= m_parallelThreshold)
+			UpdateParallel(start, m_size);
+		else
+			UpdateRange(start, m_size);
+	}
+
+	private void UpdateRange(int start, int end)
+	{
+		for(int i = start; i < end; i++)
+		{
+			int parent = m_parents[i];
+
+			if(!m_localDirty[i] && (parent == NO_PARENT || m_parentVersions[i] == m_worldVersions[parent]))
+				continue;
+
+			if(m_prevTicks[i] != m_tick && m_prevTicks[i] != NO_PREVIOUS)
+				SavePrevious(i);
+
+			Matrix4f.InitTRS(m_worldMatrices, i * 16,
+			                 m_positions[i * 3], m_positions[i * 3 + 1], m_positions[i * 3 + 2],
+			                 m_rotations[i * 4], m_rotations[i * 4 + 1], m_rotations[i * 4 + 2], m_rotations[i * 4 + 3],
+			                 m_scales[i * 3], m_scales[i * 3 + 1], m_scales[i * 3 + 2]);
+
+			if(parent != NO_PARENT)
+			{
+				Matrix4f.MulAffine(m_worldMatrices, parent * 16, m_worldMatrices, i * 16, m_worldMatrices, i * 16);
+				MulRotation(m_worldRotations, parent * 4, m_rotations, i * 4, m_worldRotations, i * 4);
+				m_parentVersions[i] = m_worldVersions[parent];
+			}
+			else
+				System.arraycopy(m_rotations, i * 4, m_worldRotations, i * 4, 4);
+
+			m_worldVersions[i]++;
+			m_localDirty[i] = false;
+
+			//A new transform has no earlier state to blend from
+			if(m_prevTicks[i] == NO_PREVIOUS)
+				SavePrevious(i);
+
+			Transform handle = m_handles[i];
+
+			if(handle.m_changeFrame != m_changeFrame)
+			{
+				handle.m_changeFrame = m_changeFrame;
+				m_changed[m_numChanged.getAndIncrement()] = handle;
+			}
+		}
+	}
+
+	private void SavePrevious(int i)
+	{
+		System.arraycopy(m_worldMatrices, i * 16, m_prevWorldMatrices, i * 16, 16);
+		System.arraycopy(m_worldRotations, i * 4, m_prevWorldRotations, i * 4, 4);
+		m_prevTicks[i] = m_tick;
+	}
+
+	synchronized void SetFrozen(boolean frozen)
+	{
+		this.m_frozen = frozen;
+	}
+
+	//Called by the engine before every fixed tick. Pending local changes are flushed first, so the state saved when an
+	//entry next moves is the one the previous tick ended with.
+	public synchronized void BeginTick()
+	{
+		Update();
+		m_tick++;
+	}
+
+	//Makes the entry render without blending from the previous tick, e.g. after a teleport. Its next recompute saves
+	//the new state as the previous one, as for a new transform, so moves made right after this aren't blended either.
+	synchronized void ResetInterpolation(int index)
+	{
+		m_prevTicks[index] = NO_PREVIOUS;
+		MarkDirty(index);
+	}
+
+	//Starts a new change frame; the engine calls this once per frame after rendering
+	public synchronized void ClearChanges()
+	{
+		Arrays.fill(m_changed, 0, m_numChanged.get(), null);
+		m_numChanged.set(0);
+		m_changeFrame++;
+	}
+
+	//Complete up to the last Update
+	public synchronized int GetNumChanged()
+	{
+		return m_numChanged.get();
+	}
+
+	public synchronized Transform GetChanged(int index)
+	{
+		return m_changed[index];
+	}
+
+	public synchronized int GetChangeFrame()
+	{
+		return m_changeFrame;
+	}
+
+	synchronized boolean HasChanged(Transform handle)
+	{
+		return handle.m_changeFrame == m_changeFrame;
+	}
+
+	private static void MulRotation(float[] a, int ao, float[] b, int bo, float[] d, int o)
+	{
+		float ax = a[ao], ay = a[ao + 1], az = a[ao + 2], aw = a[ao + 3];
+		float bx = b[bo], by = b[bo + 1], bz = b[bo + 2], bw = b[bo + 3];
+
+		d[o    ] = ax * bw + aw * bx + ay * bz - az * by;
+		d[o + 1] = ay * bw + aw * by + az * bx - ax * bz;
+		d[o + 2] = az * bw + aw * bz + ax * by - ay * bx;
+		d[o + 3] = aw * bw - ax * bx - ay * by - az * bz;
+	}
+
+	//Rebuilds depth-first order after the hierarchy changed, keeping siblings in their current relative order and
+	//compacting away removed entries
+	private void Sort()
+	{
+		EnsureSortBuffers();
+
+		int[] childStarts = m_sortChildStarts;
+		int[] children = m_sortChildren;
+		Arrays.fill(childStarts, 0, m_size + 1, 0);
+
+		for(int i = 0; i < m_size; i++)
+		{
+			if(m_handles[i] != null && m_parents[i] != NO_PARENT && m_handles[m_parents[i]] == null)
+			{
+				m_parents[i] = NO_PARENT;
+				m_localDirty[i] = true;
+			}
+		}
+
+		for(int i = 0; i < m_size; i++)
+			if(m_parents[i] != NO_PARENT)
+				childStarts[m_parents[i] + 1]++;
+
+		for(int i = 0; i < m_size; i++)
+			childStarts[i + 1] += childStarts[i];
+
+		int[] fill = m_sortFill;
+		System.arraycopy(childStarts, 0, fill, 0, m_size);
+
+		for(int i = 0; i < m_size; i++)
+			if(m_parents[i] != NO_PARENT)
+				children[fill[m_parents[i]]++] = i;
+
+		int[] order = m_sortOrder;
+		int[] stack = m_sortStack;
+		int count = 0;
+
+		for(int root = 0; root < m_size; root++)
+		{
+			if(m_parents[root] != NO_PARENT || m_handles[root] == null)
+				continue;
+
+			int top = 0;
+			stack[top++] = root;
+
+			while(top > 0)
+			{
+				int node = stack[--top];
+				order[count++] = node;
+
+				for(int c = childStarts[node + 1] - 1; c >= childStarts[node]; c--)
+					stack[top++] = children[c];
+			}
+		}
+
+		if(count != m_size - m_numRemoved)
+			throw new IllegalStateException("Transform hierarchy contains a cycle");
+
+		int[] newIndices = m_sortNewIndices;
+		for(int i = 0; i < count; i++)
+			newIndices[order[i]] = i;
+
+		Transform[] handles = m_backHandles;
+		int[] parents = m_backParents;
+		float[] positions = m_backPositions;
+		float[] rotations = m_backRotations;
+		float[] scales = m_backScales;
+		float[] worldMatrices = m_backWorldMatrices;
+		float[] worldRotations = m_backWorldRotations;
+		int[] worldVersions = m_backWorldVersions;
+		int[] parentVersions = m_backParentVersions;
+		boolean[] localDirty = m_backLocalDirty;
+		float[] prevWorldMatrices = m_backPrevWorldMatrices;
+		float[] prevWorldRotations = m_backPrevWorldRotations;
+		int[] prevTicks = m_backPrevTicks;
+
+		for(int i = 0; i < count; i++)
+		{
+			int old = order[i];
+
+			handles[i] = m_handles[old];
+			parents[i] = m_parents[old] == NO_PARENT ? NO_PARENT : newIndices[m_parents[old]];
+			System.arraycopy(m_positions, old * 3, positions, i * 3, 3);
+			System.arraycopy(m_rotations, old * 4, rotations, i * 4, 4);
+			System.arraycopy(m_scales, old * 3, scales, i * 3, 3);
+			System.arraycopy(m_worldMatrices, old * 16, worldMatrices, i * 16, 16);
+			System.arraycopy(m_worldRotations, old * 4, worldRotations, i * 4, 4);
+			worldVersions[i] = m_worldVersions[old];
+			parentVersions[i] = m_parentVersions[old];
+			localDirty[i] = m_localDirty[old];
+			System.arraycopy(m_prevWorldMatrices, old * 16, prevWorldMatrices, i * 16, 16);
+			System.arraycopy(m_prevWorldRotations, old * 4, prevWorldRotations, i * 4, 4);
+			prevTicks[i] = m_prevTicks[old];
+
+			handles[i].SetIndex(i);
+		}
+
+		//The old arrays become the spares; no stale handles may keep released transforms alive
+		Arrays.fill(m_handles, 0, m_size, null);
+
+		m_backHandles = m_handles;
+		m_backParents = m_parents;
+		m_backPositions = m_positions;
+		m_backRotations = m_rotations;
+		m_backScales = m_scales;
+		m_backWorldMatrices = m_worldMatrices;
+		m_backWorldRotations = m_worldRotations;
+		m_backWorldVersions = m_worldVersions;
+		m_backParentVersions = m_parentVersions;
+		m_backLocalDirty = m_localDirty;
+		m_backPrevWorldMatrices = m_prevWorldMatrices;
+		m_backPrevWorldRotations = m_prevWorldRotations;
+		m_backPrevTicks = m_prevTicks;
+
+		m_handles = handles;
+		m_parents = parents;
+		m_positions = positions;
+		m_rotations = rotations;
+		m_scales = scales;
+		m_worldMatrices = worldMatrices;
+		m_worldRotations = worldRotations;
+		m_worldVersions = worldVersions;
+		m_parentVersions = parentVersions;
+		m_localDirty = localDirty;
+		m_prevWorldMatrices = prevWorldMatrices;
+		m_prevWorldRotations = prevWorldRotations;
+		m_prevTicks = prevTicks;
+
+		m_size = count;
+		m_numRemoved = 0;
+
+		for(int i = m_size - 1; i >= 0; i--)
+			m_subtreeEnds[i] = i + 1;
+
+		for(int i = m_size - 1; i >= 0; i--)
+			if(m_parents[i] != NO_PARENT && m_subtreeEnds[i] > m_subtreeEnds[m_parents[i]])
+				m_subtreeEnds[m_parents[i]] = m_subtreeEnds[i];
+
+		m_ordered = true;
+	}
+
+	//Allocates the spares only when the capacity changed since the last reorder
+	private void EnsureSortBuffers()
+	{
+		int capacity = m_parents.length;
+
+		if(m_backParents != null && m_backParents.length == capacity)
+			return;
+
+		m_backHandles = new Transform[capacity];
+		m_backParents = new int[capacity];
+		m_backPositions = new float[capacity * 3];
+		m_backRotations = new float[capacity * 4];
+		m_backScales = new float[capacity * 3];
+		m_backWorldMatrices = new float[capacity * 16];
+		m_backWorldRotations = new float[capacity * 4];
+		m_backWorldVersions = new int[capacity];
+		m_backParentVersions = new int[capacity];
+		m_backLocalDirty = new boolean[capacity];
+		m_backPrevWorldMatrices = new float[capacity * 16];
+		m_backPrevWorldRotations = new float[capacity * 4];
+		m_backPrevTicks = new int[capacity];
+
+		m_sortChildStarts = new int[capacity + 1];
+		m_sortChildren = new int[capacity];
+		m_sortFill = new int[capacity];
+		m_sortOrder = new int[capacity];
+		m_sortStack = new int[capacity];
+		m_sortNewIndices = new int[capacity];
+	}
+
+	private void Grow(int capacity)
+	{
+		m_handles = Arrays.copyOf(m_handles, capacity);
+		m_parents = Arrays.copyOf(m_parents, capacity);
+		m_subtreeEnds = Arrays.copyOf(m_subtreeEnds, capacity);
+
+		m_positions = Arrays.copyOf(m_positions, capacity * 3);
+		m_rotations = Arrays.copyOf(m_rotations, capacity * 4);
+		m_scales = Arrays.copyOf(m_scales, capacity * 3);
+
+		m_worldMatrices = Arrays.copyOf(m_worldMatrices, capacity * 16);
+		m_worldRotations = Arrays.copyOf(m_worldRotations, capacity * 4);
+		m_worldVersions = Arrays.copyOf(m_worldVersions, capacity);
+		m_parentVersions = Arrays.copyOf(m_parentVersions, capacity);
+		m_localDirty = Arrays.copyOf(m_localDirty, capacity);
+
+		m_prevWorldMatrices = Arrays.copyOf(m_prevWorldMatrices, capacity * 16);
+		m_prevWorldRotations = Arrays.copyOf(m_prevWorldRotations, capacity * 4);
+		m_prevTicks = Arrays.copyOf(m_prevTicks, capacity);
+	}
+
+	//Covers [start, end), which always begins at a subtree root; splits only between whole sibling subtrees, handing
+	//the first half to the job system and doing the second half here
+	private void UpdateParallel(int start, int end)
+	{
+		while(end - start > PARALLEL_GRAIN && m_subtreeEnds[start] >= end)
+		{
+			UpdateRange(start, start + 1);
+			start++;
+		}
+
+		if(end - start <= PARALLEL_GRAIN)
+		{
+			UpdateRange(start, end);
+			return;
+		}
+
+		int middle = start + (end - start) / 2;
+		int split = start;
+
+		while(m_subtreeEnds[split] <= middle)
+			split = m_subtreeEnds[split];
+
+		if(split == start)
+			split = m_subtreeEnds[start];
+
+		final int first = start;
+		final int second = split;
+
+		Job firstHalf = JobSystem.GetDefault().Schedule(() -> UpdateParallel(first, second));
+		UpdateParallel(second, end);
+		firstHalf.Wait();
+	}
+
+	public synchronized Matrix4f GetWorldMatrix(int index, Matrix4f dest)
+	{
+		return dest.Set(m_worldMatrices, index * 16);
+	}
+
+	public synchronized Vector3f GetWorldPosition(int index, Vector3f dest)
+	{
+		return dest.Set(m_worldMatrices[index * 16 + 3], m_worldMatrices[index * 16 + 7], m_worldMatrices[index * 16 + 11]);
+	}
+
+	public synchronized Quaternion GetWorldRotation(int index, Quaternion dest)
+	{
+		return dest.Set(m_worldRotations[index * 4], m_worldRotations[index * 4 + 1],
+		                m_worldRotations[index * 4 + 2], m_worldRotations[index * 4 + 3]);
+	}
+
+	//World matrix blended alpha of the way from the previous tick's state to the current one. Rotation is normalised-
+	//lerped and the remaining scale and shear blended linearly, so a spinning object doesn't shrink mid-blend.
+	public synchronized Matrix4f GetInterpolatedWorldMatrix(int index, float alpha, Matrix4f dest)
+	{
+		if(alpha >= 1 || m_prevTicks[index] != m_tick)
+			return GetWorldMatrix(index, dest);
+
+		float[] r = m_interpolationScratch;
+		float[] m = m_worldMatrices;
+		float[] p = m_prevWorldMatrices;
+		int o = index * 16;
+
+		//Blended rotation at r[48], then the rotation matrices of the previous, current and blended rotations at r[0],
+		//r[16] and r[32]
+		InterpolateRotation(index, alpha, r, 48);
+
+		Matrix4f.InitTRS(r, 0, 0, 0, 0, m_prevWorldRotations[index * 4], m_prevWorldRotations[index * 4 + 1],
+		                 m_prevWorldRotations[index * 4 + 2], m_prevWorldRotations[index * 4 + 3], 1, 1, 1);
+		Matrix4f.InitTRS(r, 16, 0, 0, 0, m_worldRotations[index * 4], m_worldRotations[index * 4 + 1],
+		                 m_worldRotations[index * 4 + 2], m_worldRotations[index * 4 + 3], 1, 1, 1);
+		Matrix4f.InitTRS(r, 32, 0, 0, 0, r[48], r[49], r[50], r[51], 1, 1, 1);
+
+		float[] d = dest.GetData();
+
+		for(int row = 0; row < 3; row++)
+		{
+			for(int col = 0; col < 3; col++)
+			{
+				//(R * lerp(Rp^T * Mp, Rc^T * Mc))[row][col]
+				float value = 0;
+
+				for(int k = 0; k < 3; k++)
+				{
+					float previous = r[k] * p[o + col] + r[4 + k] * p[o + 4 + col] + r[8 + k] * p[o + 8 + col];
+					float current = r[16 + k] * m[o + col] + r[20 + k] * m[o + 4 + col] + r[24 + k] * m[o + 8 + col];
+
+					value += r[32 + row * 4 + k] * (previous + (current - previous) * alpha);
+				}
+
+				d[row * 4 + col] = value;
+			}
+
+			d[row * 4 + 3] = p[o + row * 4 + 3] + (m[o + row * 4 + 3] - p[o + row * 4 + 3]) * alpha;
+		}
+
+		d[12] = 0;
+		d[13] = 0;
+		d[14] = 0;
+		d[15] = 1;
+
+		return dest;
+	}
+
+	public synchronized Vector3f GetInterpolatedWorldPosition(int index, float alpha, Vector3f dest)
+	{
+		if(alpha >= 1 || m_prevTicks[index] != m_tick)
+			return GetWorldPosition(index, dest);
+
+		int o = index * 16;
+
+		return dest.Set(m_prevWorldMatrices[o + 3] + (m_worldMatrices[o + 3] - m_prevWorldMatrices[o + 3]) * alpha,
+		                m_prevWorldMatrices[o + 7] + (m_worldMatrices[o + 7] - m_prevWorldMatrices[o + 7]) * alpha,
+		                m_prevWorldMatrices[o + 11] + (m_worldMatrices[o + 11] - m_prevWorldMatrices[o + 11]) * alpha);
+	}
+
+	public synchronized Quaternion GetInterpolatedWorldRotation(int index, float alpha, Quaternion dest)
+	{
+		if(alpha >= 1 || m_prevTicks[index] != m_tick)
+			return GetWorldRotation(index, dest);
+
+		float[] q = m_interpolationScratch;
+		InterpolateRotation(index, alpha, q, 0);
+
+		return dest.Set(q[0], q[1], q[2], q[3]);
+	}
+
+	//Normalised lerp along the shorter arc
+	private void InterpolateRotation(int index, float alpha, float[] dest, int o)
+	{
+		int i = index * 4;
+		float[] p = m_prevWorldRotations;
+		float[] c = m_worldRotations;
+
+		float sign = p[i] * c[i] + p[i + 1] * c[i + 1] + p[i + 2] * c[i + 2] + p[i + 3] * c[i + 3] < 0 ? -1 : 1;
+		float x = p[i] + (c[i] * sign - p[i]) * alpha;
+		float y = p[i + 1] + (c[i + 1] * sign - p[i + 1]) * alpha;
+		float z = p[i + 2] + (c[i + 2] * sign - p[i + 2]) * alpha;
+		float w = p[i + 3] + (c[i + 3] * sign - p[i + 3]) * alpha;
+		float length = (float)Math.sqrt(x * x + y * y + z * z + w * w);
+
+		dest[o] = x / length;
+		dest[o + 1] = y / length;
+		dest[o + 2] = z / length;
+		dest[o + 3] = w / length;
+	}
+
+	public synchronized int GetWorldVersion(int index)   { return m_worldVersions[index]; }
+	public int GetParent(int index)                      { return m_parents[index]; }
+	public float[] GetWorldMatrices()                    { return m_worldMatrices; }
+	public int GetSize()                                 { return m_size; }
+	public void SetParallelThreshold(int threshold)      { this.m_parallelThreshold = threshold; }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Lock-free handoff of the latest value from one producer thread to one consumer thread. The producer fills the write
+//slot and publishes it; the consumer always gets the newest published slot and never waits for, or blocks, the producer.
+//Slots are recycled rather than copied, so a value must not be touched by its side after being handed over.
+public class TripleBuffer<T>
+{
+	private static final int INDEX_MASK = 3;
+	private static final int FRESH      = 4;
+
+	private final Object[]      m_slots;
+	private final AtomicInteger m_middle;
+	private int                 m_write;
+	private int                 m_read;
+
+	public TripleBuffer(T first, T second, T third)
+	{
+		m_slots = new Object[] { first, second, third };
+		m_write = 0;
+		m_middle = new AtomicInteger(1);
+		m_read = 2;
+	}
+
+	//Producer side
+	@SuppressWarnings("unchecked")
+	public T GetWriteBuffer()
+	{
+		return (T)m_slots[m_write];
+	}
+
+	//Producer side; hands the write slot over and takes back whichever slot the consumer isn't using
+	public void Publish()
+	{
+		m_write = m_middle.getAndSet(m_write | FRESH) & INDEX_MASK;
+	}
+
+	//Consumer side
+	public boolean HasNew()
+	{
+		return (m_middle.get() & FRESH) != 0;
+	}
+
+	//Consumer side; the newest published value, or the previous one again if nothing was published since
+	@SuppressWarnings("unchecked")
+	public T Acquire()
+	{
+		if(HasNew())
+			m_read = m_middle.getAndSet(m_read) & INDEX_MASK;
+
+		return (T)m_slots[m_read];
+	}
+}
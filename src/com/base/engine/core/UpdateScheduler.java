@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core;
+
+import com.base.engine.components.GameComponent;
+
+import java.util.Arrays;
+
+//Decides each tick which Update hooks actually run. A component is updated every GetTickInterval() ticks, times a
+//power of two when it opted into update LOD and is far from the focus (normally the main camera), and not at all
+//while dormant. Components with the same interval are spread across the ticks of that interval by their phase, so
+//e.g. a thousand components at interval 4 cost about 250 updates per tick rather than a thousand every fourth tick.
+public class UpdateScheduler
+{
+	private long     m_tick;
+	private int[]    m_nextPhases;
+	private Vector3f m_focus;
+	private boolean  m_hasFocus;
+	private float[]  m_lodDistancesSquared;
+
+	public UpdateScheduler()
+	{
+		m_tick = 0;
+		m_nextPhases = new int[8];
+		m_focus = new Vector3f(0, 0, 0);
+		m_hasFocus = false;
+		m_lodDistancesSquared = new float[0];
+	}
+
+	public void BeginTick()
+	{
+		m_tick++;
+	}
+
+	//Round-robin per interval, so components registered together land in different buckets of their own interval
+	//whatever other intervals are registered in between. Consecutive phases also stay spread under the LOD
+	//multipliers, which are powers of two.
+	public int NextPhase(int interval)
+	{
+		if(interval >= m_nextPhases.length)
+			m_nextPhases = Arrays.copyOf(m_nextPhases, Math.max(m_nextPhases.length * 2, interval + 1));
+
+		return m_nextPhases[interval]++ & Integer.MAX_VALUE;
+	}
+
+	//Returns the time to pass to Update, covering every tick since the component last ran, or a negative value when
+	//it should be skipped this tick. Only touches the component itself, so it is safe from the parallel update.
+	public float Schedule(GameComponent component, float delta)
+	{
+		if(component.IsDormant())
+			return -1;
+
+		int interval = component.GetTickInterval();
+
+		if(component.GetUpdateLOD() && m_hasFocus && m_lodDistancesSquared.length > 0)
+			interval *= component.GetLODMultiplier();
+
+		if(interval > 1 && (m_tick + component.GetTickPhase()) % interval != 0)
+			return -1;
+
+		//The distance band is re-evaluated only when the component runs, so far objects react to the focus moving
+		//closer within one of their own (slower) intervals
+		if(component.GetUpdateLOD() && m_hasFocus && m_lodDistancesSquared.length > 0)
+			component.SetLODMultiplier(GetLODMultiplier(component.GetTransform()));
+
+		long lastTick = component.GetLastUpdateTick();
+		long elapsed = lastTick < 0 || lastTick >= m_tick ? 1 : m_tick - lastTick;
+		component.SetLastUpdateTick(m_tick);
+
+		return delta * elapsed;
+	}
+
+	private int GetLODMultiplier(Transform transform)
+	{
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+
+		Vector3f position = transform.GetTransformedPos(scratch.NextVector3f());
+		float dx = position.GetX() - m_focus.GetX();
+		float dy = position.GetY() - m_focus.GetY();
+		float dz = position.GetZ() - m_focus.GetZ();
+		float distanceSquared = dx * dx + dy * dy + dz * dz;
+
+		scratch.Pop();
+
+		int multiplier = 1;
+
+		for(int i = 0; i < m_lodDistancesSquared.length && distanceSquared > m_lodDistancesSquared[i]; i++)
+			multiplier *= 2;
+
+		return multiplier;
+	}
+
+	//Beyond distances[i] from the focus, LOD components update 2^(i + 1) times less often. Ascending order.
+	public void SetLODDistances(float... distances)
+	{
+		m_lodDistancesSquared = new float[distances.length];
+
+		for(int i = 0; i < distances.length; i++)
+			m_lodDistancesSquared[i] = distances[i] * distances[i];
+	}
+
+	public void SetFocus(Vector3f focus)
+	{
+		m_focus.Set(focus);
+		m_hasFocus = true;
+	}
+
+	public void ClearFocus()
+	{
+		m_hasFocus = false;
+	}
+
+	public long GetTick() { return m_tick; }
+}
@@ -50,6 +50,40 @@ public class Util
 		return buffer;
 	}
 	
+	public static FloatBuffer CreateFlippedBuffer(float... values)
+	{
+		FloatBuffer buffer = CreateFloatBuffer(values.length);
+		buffer.put(values);
+		buffer.flip();
+
+		return buffer;
+	}
+
+	//Packs vertices in the interleaved layout Mesh uploads: position, texture coordinate, normal, tangent
+	public static float[] ToFloatArray(Vertex[] vertices)
+	{
+		float[] result = new float[vertices.length * Vertex.SIZE];
+
+		for(int i = 0; i < vertices.length; i++)
+		{
+			int o = i * Vertex.SIZE;
+
+			result[o    ] = vertices[i].GetPos().GetX();
+			result[o + 1] = vertices[i].GetPos().GetY();
+			result[o + 2] = vertices[i].GetPos().GetZ();
+			result[o + 3] = vertices[i].GetTexCoord().GetX();
+			result[o + 4] = vertices[i].GetTexCoord().GetY();
+			result[o + 5] = vertices[i].GetNormal().GetX();
+			result[o + 6] = vertices[i].GetNormal().GetY();
+			result[o + 7] = vertices[i].GetNormal().GetZ();
+			result[o + 8] = vertices[i].GetTangent().GetX();
+			result[o + 9] = vertices[i].GetTangent().GetY();
+			result[o + 10] = vertices[i].GetTangent().GetZ();
+		}
+
+		return result;
+	}
+
 	public static FloatBuffer CreateFlippedBuffer(Vertex[] vertices)
 	{
 		FloatBuffer buffer = CreateFloatBuffer(vertices.length * Vertex.SIZE);
@@ -78,10 +112,7 @@ public class Util
 	{
 		FloatBuffer buffer = CreateFloatBuffer(4 * 4);
 		
-		for(int i = 0; i < 4; i++)
-			for(int j = 0; j < 4; j++)
-				buffer.put(value.Get(i, j));
-		
+		value.Store(buffer);
 		buffer.flip();
 		
 		return buffer;
@@ -49,6 +49,13 @@ public class Vector2f
 		return new Vector2f(m_x / length, m_y / length);
 	}
 
+	public Vector2f NormalizeLocal()
+	{
+		float length = Length();
+
+		return Set(m_x / length, m_y / length);
+	}
+
 	public float Cross(Vector2f r)
 	{
 		return m_x * r.GetY() - m_y * r.GetX();
@@ -59,13 +66,23 @@ public class Vector2f
 		return dest.Sub(this).Mul(lerpFactor).Add(this);
 	}
 
+	public Vector2f LerpLocal(Vector2f dest, float lerpFactor)
+	{
+		return Set(m_x + (dest.GetX() - m_x) * lerpFactor, m_y + (dest.GetY() - m_y) * lerpFactor);
+	}
+
 	public Vector2f Rotate(float angle)
+	{
+		return Rotate(angle, new Vector2f(0, 0));
+	}
+
+	public Vector2f Rotate(float angle, Vector2f dest)
 	{
 		double rad = Math.toRadians(angle);
 		double cos = Math.cos(rad);
 		double sin = Math.sin(rad);
 		
-		return new Vector2f((float)(m_x * cos - m_y * sin),(float)(m_x * sin + m_y * cos));
+		return dest.Set((float)(m_x * cos - m_y * sin),(float)(m_x * sin + m_y * cos));
 	}
 	
 	public Vector2f Add(Vector2f r)
@@ -112,6 +129,66 @@ public class Vector2f
 	{
 		return new Vector2f(Math.abs(m_x), Math.abs(m_y));
 	}
+
+	public Vector2f Add(Vector2f r, Vector2f dest)
+	{
+		return dest.Set(m_x + r.GetX(), m_y + r.GetY());
+	}
+
+	public Vector2f Sub(Vector2f r, Vector2f dest)
+	{
+		return dest.Set(m_x - r.GetX(), m_y - r.GetY());
+	}
+
+	public Vector2f Mul(float r, Vector2f dest)
+	{
+		return dest.Set(m_x * r, m_y * r);
+	}
+
+	public Vector2f AddLocal(Vector2f r)
+	{
+		return Set(m_x + r.GetX(), m_y + r.GetY());
+	}
+
+	public Vector2f AddLocal(float r)
+	{
+		return Set(m_x + r, m_y + r);
+	}
+
+	public Vector2f SubLocal(Vector2f r)
+	{
+		return Set(m_x - r.GetX(), m_y - r.GetY());
+	}
+
+	public Vector2f SubLocal(float r)
+	{
+		return Set(m_x - r, m_y - r);
+	}
+
+	public Vector2f MulLocal(Vector2f r)
+	{
+		return Set(m_x * r.GetX(), m_y * r.GetY());
+	}
+
+	public Vector2f MulLocal(float r)
+	{
+		return Set(m_x * r, m_y * r);
+	}
+
+	public Vector2f DivLocal(Vector2f r)
+	{
+		return Set(m_x / r.GetX(), m_y / r.GetY());
+	}
+
+	public Vector2f DivLocal(float r)
+	{
+		return Set(m_x / r, m_y / r);
+	}
+
+	public Vector2f AbsLocal()
+	{
+		return Set(Math.abs(m_x), Math.abs(m_y));
+	}
 	
 	public String toString()
 	{
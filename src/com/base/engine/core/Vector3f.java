@@ -53,6 +53,15 @@ public class Vector3f
 		return new Vector3f(x_, y_, z_);
 	}
 	
+	public Vector3f Cross(Vector3f r, Vector3f dest)
+	{
+		float x_ = m_y * r.GetZ() - m_z * r.GetY();
+		float y_ = m_z * r.GetX() - m_x * r.GetZ();
+		float z_ = m_x * r.GetY() - m_y * r.GetX();
+
+		return dest.Set(x_, y_, z_);
+	}
+	
 	public Vector3f Normalized()
 	{
 		float length = Length();
@@ -60,6 +69,13 @@ public class Vector3f
 		return new Vector3f(m_x / length, m_y / length, m_z / length);
 	}
 
+	public Vector3f NormalizeLocal()
+	{
+		float length = Length();
+
+		return Set(m_x / length, m_y / length, m_z / length);
+	}
+
 	public Vector3f Rotate(Vector3f axis, float angle)
 	{
 		float sinAngle = (float)Math.sin(-angle);
@@ -72,11 +88,26 @@ public class Vector3f
 
 	public Vector3f Rotate(Quaternion rotation)
 	{
-		Quaternion conjugate = rotation.Conjugate();
+		return Rotate(rotation, new Vector3f(0, 0, 0));
+	}
 
-		Quaternion w = rotation.Mul(this).Mul(conjugate);
+	public Vector3f Rotate(Quaternion rotation, Vector3f dest)
+	{
+		float qx = rotation.GetX();
+		float qy = rotation.GetY();
+		float qz = rotation.GetZ();
+		float qw = rotation.GetW();
 
-		return new Vector3f(w.GetX(), w.GetY(), w.GetZ());
+		//rotation * this
+		float tw = -qx * m_x - qy * m_y - qz * m_z;
+		float tx =  qw * m_x + qy * m_z - qz * m_y;
+		float ty =  qw * m_y + qz * m_x - qx * m_z;
+		float tz =  qw * m_z + qx * m_y - qy * m_x;
+
+		//... * rotation.Conjugate()
+		return dest.Set(tx * qw - tw * qx - ty * qz + tz * qy,
+		                ty * qw - tw * qy - tz * qx + tx * qz,
+		                tz * qw - tw * qz - tx * qy + ty * qx);
 	}
 
 	public Vector3f Lerp(Vector3f dest, float lerpFactor)
@@ -84,6 +115,13 @@ public class Vector3f
 		return dest.Sub(this).Mul(lerpFactor).Add(this);
 	}
 
+	public Vector3f LerpLocal(Vector3f dest, float lerpFactor)
+	{
+		return Set(m_x + (dest.GetX() - m_x) * lerpFactor,
+		           m_y + (dest.GetY() - m_y) * lerpFactor,
+		           m_z + (dest.GetZ() - m_z) * lerpFactor);
+	}
+
 	public Vector3f Add(Vector3f r)
 	{
 		return new Vector3f(m_x + r.GetX(), m_y + r.GetY(), m_z + r.GetZ());
@@ -128,6 +166,66 @@ public class Vector3f
 	{
 		return new Vector3f(Math.abs(m_x), Math.abs(m_y), Math.abs(m_z));
 	}
+
+	public Vector3f Add(Vector3f r, Vector3f dest)
+	{
+		return dest.Set(m_x + r.GetX(), m_y + r.GetY(), m_z + r.GetZ());
+	}
+
+	public Vector3f Sub(Vector3f r, Vector3f dest)
+	{
+		return dest.Set(m_x - r.GetX(), m_y - r.GetY(), m_z - r.GetZ());
+	}
+
+	public Vector3f Mul(float r, Vector3f dest)
+	{
+		return dest.Set(m_x * r, m_y * r, m_z * r);
+	}
+
+	public Vector3f AddLocal(Vector3f r)
+	{
+		return Set(m_x + r.GetX(), m_y + r.GetY(), m_z + r.GetZ());
+	}
+
+	public Vector3f AddLocal(float r)
+	{
+		return Set(m_x + r, m_y + r, m_z + r);
+	}
+
+	public Vector3f SubLocal(Vector3f r)
+	{
+		return Set(m_x - r.GetX(), m_y - r.GetY(), m_z - r.GetZ());
+	}
+
+	public Vector3f SubLocal(float r)
+	{
+		return Set(m_x - r, m_y - r, m_z - r);
+	}
+
+	public Vector3f MulLocal(Vector3f r)
+	{
+		return Set(m_x * r.GetX(), m_y * r.GetY(), m_z * r.GetZ());
+	}
+
+	public Vector3f MulLocal(float r)
+	{
+		return Set(m_x * r, m_y * r, m_z * r);
+	}
+
+	public Vector3f DivLocal(Vector3f r)
+	{
+		return Set(m_x / r.GetX(), m_y / r.GetY(), m_z / r.GetZ());
+	}
+
+	public Vector3f DivLocal(float r)
+	{
+		return Set(m_x / r, m_y / r, m_z / r);
+	}
+
+	public Vector3f AbsLocal()
+	{
+		return Set(Math.abs(m_x), Math.abs(m_y), Math.abs(m_z));
+	}
 	
 	public String toString()
 	{
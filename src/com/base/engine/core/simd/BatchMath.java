@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.core.simd;
+
+//Bulk math over flat arrays, with vectors passed as separate x/y/z arrays. TransformPoints and TransformDirections
+//are plain counted loops over contiguous elements, which HotSpot's superword pass may pack into SIMD instructions;
+//the indexed gathers and scatters in TriangleNormals and VertexNormals stay scalar.
+public class BatchMath
+{
+	//dest = m * (x, y, z, 1) for count points; m is a row-major 4x4 at matrix[mo]. Output arrays may alias the input
+	public static void TransformPoints(float[] matrix, int mo, float[] x, float[] y, float[] z,
+	                                   float[] destX, float[] destY, float[] destZ, int count)
+	{
+		float m00 = matrix[mo    ], m01 = matrix[mo + 1], m02 = matrix[mo +  2], m03 = matrix[mo +  3];
+		float m10 = matrix[mo + 4], m11 = matrix[mo + 5], m12 = matrix[mo +  6], m13 = matrix[mo +  7];
+		float m20 = matrix[mo + 8], m21 = matrix[mo + 9], m22 = matrix[mo + 10], m23 = matrix[mo + 11];
+
+		for(int i = 0; i < count; i++)
+		{
+			float px = x[i];
+			float py = y[i];
+			float pz = z[i];
+
+			destX[i] = m00 * px + m01 * py + m02 * pz + m03;
+			destY[i] = m10 * px + m11 * py + m12 * pz + m13;
+			destZ[i] = m20 * px + m21 * py + m22 * pz + m23;
+		}
+	}
+
+	//Like TransformPoints but ignores translation, for directions such as normals and tangents
+	public static void TransformDirections(float[] matrix, int mo, float[] x, float[] y, float[] z,
+	                                       float[] destX, float[] destY, float[] destZ, int count)
+	{
+		float m00 = matrix[mo    ], m01 = matrix[mo + 1], m02 = matrix[mo +  2];
+		float m10 = matrix[mo + 4], m11 = matrix[mo + 5], m12 = matrix[mo +  6];
+		float m20 = matrix[mo + 8], m21 = matrix[mo + 9], m22 = matrix[mo + 10];
+
+		for(int i = 0; i < count; i++)
+		{
+			float px = x[i];
+			float py = y[i];
+			float pz = z[i];
+
+			destX[i] = m00 * px + m01 * py + m02 * pz;
+			destY[i] = m10 * px + m11 * py + m12 * pz;
+			destZ[i] = m20 * px + m21 * py + m22 * pz;
+		}
+	}
+
+	//dest[i] = a[i] * b[i] for count packed row-major 4x4 matrices
+	public static void MulMatrices(float[] a, float[] b, float[] dest, int count)
+	{
+		for(int n = 0; n < count * 16; n += 16)
+		{
+			for(int row = 0; row < 16; row += 4)
+			{
+				float a0 = a[n + row];
+				float a1 = a[n + row + 1];
+				float a2 = a[n + row + 2];
+				float a3 = a[n + row + 3];
+
+				for(int col = 0; col < 4; col++)
+				{
+					dest[n + row + col] = a0 * b[n + col] + a1 * b[n + 4 + col] + a2 * b[n + 8 + col] + a3 * b[n + 12 + col];
+				}
+			}
+		}
+	}
+
+	//Zero-length vectors are left at zero rather than becoming NaN
+	public static void NormalizeVectors(float[] x, float[] y, float[] z, int count)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			float lengthSq = x[i] * x[i] + y[i] * y[i] + z[i] * z[i];
+			float invLength = lengthSq > 0 ? 1.0f / (float)Math.sqrt(lengthSq) : 0;
+
+			x[i] *= invLength;
+			y[i] *= invLength;
+			z[i] *= invLength;
+		}
+	}
+
+	//Unnormalized face normal (v1 - v0) x (v2 - v0) of each indexed triangle
+	public static void TriangleNormals(float[] x, float[] y, float[] z, int[] indices, int triangleCount,
+	                                   float[] normalX, float[] normalY, float[] normalZ)
+	{
+		for(int t = 0; t < triangleCount; t++)
+		{
+			int i0 = indices[t * 3];
+			int i1 = indices[t * 3 + 1];
+			int i2 = indices[t * 3 + 2];
+
+			float e1x = x[i1] - x[i0];
+			float e1y = y[i1] - y[i0];
+			float e1z = z[i1] - z[i0];
+			float e2x = x[i2] - x[i0];
+			float e2y = y[i2] - y[i0];
+			float e2z = z[i2] - z[i0];
+
+			normalX[t] = e1y * e2z - e1z * e2y;
+			normalY[t] = e1z * e2x - e1x * e2z;
+			normalZ[t] = e1x * e2y - e1y * e2x;
+		}
+	}
+
+	//Smooth vertex normals: normalized face normals summed onto their corners, then normalized
+	public static void VertexNormals(float[] x, float[] y, float[] z, int vertexCount, int[] indices, int triangleCount,
+	                                 float[] normalX, float[] normalY, float[] normalZ)
+	{
+		float[] faceX = new float[triangleCount];
+		float[] faceY = new float[triangleCount];
+		float[] faceZ = new float[triangleCount];
+
+		TriangleNormals(x, y, z, indices, triangleCount, faceX, faceY, faceZ);
+		NormalizeVectors(faceX, faceY, faceZ, triangleCount);
+
+		for(int t = 0; t < triangleCount; t++)
+		{
+			for(int corner = 0; corner < 3; corner++)
+			{
+				int i = indices[t * 3 + corner];
+
+				normalX[i] += faceX[t];
+				normalY[i] += faceY[t];
+				normalZ[i] += faceZ[t];
+			}
+		}
+
+		NormalizeVectors(normalX, normalY, normalZ, vertexCount);
+	}
+}
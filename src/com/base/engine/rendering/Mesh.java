@@ -16,8 +16,10 @@
 
 package com.base.engine.rendering;
 
+import com.base.engine.core.AABB;
 import com.base.engine.core.Util;
 import com.base.engine.core.Vector3f;
+import com.base.engine.core.simd.BatchMath;
 import com.base.engine.rendering.meshLoading.IndexedModel;
 import com.base.engine.rendering.meshLoading.OBJModel;
 import com.base.engine.rendering.resourceManagement.MeshResource;
@@ -32,6 +34,15 @@ import java.util.HashMap;
 public class Mesh
 {
 	private static HashMap<String, MeshResource> s_loadedModels = new HashMap<String, MeshResource>();
+
+	//Meshes created while this is set keep a CPU copy of their data for static batching. The engine clears it once the
+	//scene's batches are built, dropping the copies; GetVertexData then reads the GPU buffers back.
+	private static boolean                 s_retainData = true;
+
+	//Copies kept before the batches were built, so they can be dropped then; later meshes aren't listed
+	private static ArrayList<MeshResource> s_retained = new ArrayList<MeshResource>();
+	private static boolean                 s_batchesBuilt = false;
+
 	private MeshResource m_resource;
 	private String       m_fileName;
 	
@@ -52,6 +63,24 @@ public class Mesh
 		}
 	}
 	
+	//Uploads a model parsed ahead of time with LoadModel, or shares the resource if the file is already loaded
+	public Mesh(String fileName, IndexedModel model)
+	{
+		this.m_fileName = fileName;
+		MeshResource oldResource = s_loadedModels.get(fileName);
+
+		if(oldResource != null)
+		{
+			m_resource = oldResource;
+			m_resource.AddReference();
+		}
+		else
+		{
+			AddModel(model);
+			s_loadedModels.put(fileName, m_resource);
+		}
+	}
+
 	public Mesh(Vertex[] vertices, int[] indices)
 	{
 		this(vertices, indices, false);
@@ -63,6 +92,13 @@ public class Mesh
 		AddVertices(vertices, indices, calcNormals);
 	}
 
+	//Interleaved vertex data in Vertex.SIZE floats per vertex, as Util.ToFloatArray produces
+	public Mesh(float[] vertexData, int[] indices)
+	{
+		m_fileName = "";
+		AddVertexData(vertexData, indices);
+	}
+
 	@Override
 	protected void finalize()
 	{
@@ -79,15 +115,73 @@ public class Mesh
 			CalcNormals(vertices, indices);
 		}
 
+		AddVertexData(Util.ToFloatArray(vertices), indices);
+	}
+
+	private void AddVertexData(float[] vertexData, int[] indices)
+	{
 		m_resource = new MeshResource(indices.length);
+
+		m_resource.SetData(vertexData, indices);
+
+		if(s_retainData && !s_batchesBuilt)
+			s_retained.add(m_resource);
+
+		AABB bounds = m_resource.GetBounds().InitEmpty();
+		for(int i = 0; i < vertexData.length; i += Vertex.SIZE)
+			bounds.Expand(vertexData[i], vertexData[i + 1], vertexData[i + 2]);
 		
 		glBindBuffer(GL_ARRAY_BUFFER, m_resource.GetVbo());
-		glBufferData(GL_ARRAY_BUFFER, Util.CreateFlippedBuffer(vertices), GL_STATIC_DRAW);
+		glBufferData(GL_ARRAY_BUFFER, Util.CreateFlippedBuffer(vertexData), GL_STATIC_DRAW);
 		
 		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, m_resource.GetIbo());
 		glBufferData(GL_ELEMENT_ARRAY_BUFFER, Util.CreateFlippedBuffer(indices), GL_STATIC_DRAW);
+
+		if(!s_retainData)
+			m_resource.ReleaseData();
 	}
 	
+	//Object-space bounds of the vertex positions
+	public AABB GetBounds()
+	{
+		return m_resource.GetBounds();
+	}
+
+	public static void SetRetainData(boolean retainData)
+	{
+		s_retainData = retainData;
+
+		if(retainData)
+			return;
+
+		for(int i = 0; i < s_retained.size(); i++)
+			s_retained.get(i).ReleaseData();
+
+		s_retained.clear();
+	}
+
+	//Called once the scene's static batches are built. Stops listing new meshes and, unless retainData, drops the
+	//listed copies and keeps none from now on.
+	public static void OnStaticBatchesBuilt(boolean retainData)
+	{
+		if(!retainData)
+			SetRetainData(false);
+
+		s_retained.clear();
+		s_batchesBuilt = true;
+	}
+
+	//Interleaved as uploaded; read back from the GPU, on the GL thread only, once the CPU copy was dropped
+	public float[] GetVertexData()
+	{
+		return m_resource.GetVertexData();
+	}
+
+	public int[] GetIndexData()
+	{
+		return m_resource.GetIndexData();
+	}
+
 	public void Draw()
 	{
 		glEnableVertexAttribArray(0);
@@ -112,27 +206,41 @@ public class Mesh
 	
 	private void CalcNormals(Vertex[] vertices, int[] indices)
 	{
-		for(int i = 0; i < indices.length; i += 3)
+		float[] x = new float[vertices.length];
+		float[] y = new float[vertices.length];
+		float[] z = new float[vertices.length];
+		float[] normalX = new float[vertices.length];
+		float[] normalY = new float[vertices.length];
+		float[] normalZ = new float[vertices.length];
+
+		for(int i = 0; i < vertices.length; i++)
 		{
-			int i0 = indices[i];
-			int i1 = indices[i + 1];
-			int i2 = indices[i + 2];
-			
-			Vector3f v1 = vertices[i1].GetPos().Sub(vertices[i0].GetPos());
-			Vector3f v2 = vertices[i2].GetPos().Sub(vertices[i0].GetPos());
-			
-			Vector3f normal = v1.Cross(v2).Normalized();
-			
-			vertices[i0].SetNormal(vertices[i0].GetNormal().Add(normal));
-			vertices[i1].SetNormal(vertices[i1].GetNormal().Add(normal));
-			vertices[i2].SetNormal(vertices[i2].GetNormal().Add(normal));
+			Vector3f pos = vertices[i].GetPos();
+			Vector3f normal = vertices[i].GetNormal();
+
+			x[i] = pos.GetX();
+			y[i] = pos.GetY();
+			z[i] = pos.GetZ();
+			normalX[i] = normal.GetX();
+			normalY[i] = normal.GetY();
+			normalZ[i] = normal.GetZ();
 		}
-		
+
+		BatchMath.VertexNormals(x, y, z, vertices.length, indices, indices.length / 3, normalX, normalY, normalZ);
+
 		for(int i = 0; i < vertices.length; i++)
-			vertices[i].SetNormal(vertices[i].GetNormal().Normalized());
+			vertices[i].GetNormal().Set(normalX[i], normalY[i], normalZ[i]);
 	}
 	
 	private Mesh LoadMesh(String fileName)
+	{
+		AddModel(LoadModel(fileName));
+
+		return this;
+	}
+
+	//Reads and indexes a model file without touching OpenGL, so it may run on any thread
+	public static IndexedModel LoadModel(String fileName)
 	{
 		String[] splitArray = fileName.split("\\.");
 		String ext = splitArray[splitArray.length - 1];
@@ -145,8 +253,12 @@ public class Mesh
 		}
 
 		OBJModel test = new OBJModel("./res/models/" + fileName);
-		IndexedModel model = test.ToIndexedModel();
 
+		return test.ToIndexedModel();
+	}
+
+	private void AddModel(IndexedModel model)
+	{
 		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
 
 		for(int i = 0; i < model.GetPositions().size(); i++)
@@ -164,7 +276,10 @@ public class Mesh
 		model.GetIndices().toArray(indexData);
 
 		AddVertices(vertexData, Util.ToIntArray(indexData), false);
-		
-		return this;
+	}
+
+	public String GetFileName()
+	{
+		return m_fileName;
 	}
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.rendering;
+
+import com.base.engine.core.Matrix4f;
+import com.base.engine.core.Transform;
+import com.base.engine.core.Vector3f;
+
+import java.util.Arrays;
+
+//Everything the render thread needs to draw one frame, copied out of the scene by the simulation thread: the camera,
+//the visible meshes with their world matrices, and the parameters of every light that can affect the view. Instances
+//are reused frame after frame, so nothing is allocated once the arrays have grown to the scene's size.
+public class RenderSnapshot
+{
+	public static class Light
+	{
+		private Shader   m_shader;
+		private Vector3f m_color     = new Vector3f(0, 0, 0);
+		private float    m_intensity;
+		private Vector3f m_position  = new Vector3f(0, 0, 0);
+		private Vector3f m_direction = new Vector3f(0, 0, 1);
+		private float    m_constant;
+		private float    m_linear;
+		private float    m_exponent;
+		private float    m_range;
+		private float    m_cutoff;
+
+		public void SetBase(Shader shader, Vector3f color, float intensity)
+		{
+			this.m_shader = shader;
+			this.m_color.Set(color);
+			this.m_intensity = intensity;
+		}
+
+		public void SetPoint(Vector3f position, Attenuation attenuation, float range)
+		{
+			this.m_position.Set(position);
+			this.m_constant = attenuation.GetConstant();
+			this.m_linear = attenuation.GetLinear();
+			this.m_exponent = attenuation.GetExponent();
+			this.m_range = range;
+		}
+
+		public void SetDirection(Vector3f direction) { this.m_direction.Set(direction); }
+		public void SetCutoff(float cutoff)          { this.m_cutoff = cutoff; }
+
+		public Shader GetShader()      { return m_shader; }
+		public Vector3f GetColor()     { return m_color; }
+		public float GetIntensity()    { return m_intensity; }
+		public Vector3f GetPosition()  { return m_position; }
+		public Vector3f GetDirection() { return m_direction; }
+		public float GetConstant()     { return m_constant; }
+		public float GetLinear()       { return m_linear; }
+		public float GetExponent()     { return m_exponent; }
+		public float GetRange()        { return m_range; }
+		public float GetCutoff()       { return m_cutoff; }
+	}
+
+	private Matrix4f   m_viewProjection;
+	private Vector3f   m_eyePos;
+	private boolean    m_hasCamera;
+
+	private Mesh[]     m_meshes;
+	private Material[] m_materials;
+	private Matrix4f[] m_worldMatrices;
+	private int        m_numRenderers;
+
+	private Light[]    m_lights;
+	private int        m_numLights;
+
+	public RenderSnapshot()
+	{
+		m_viewProjection = new Matrix4f().InitIdentity();
+		m_eyePos = new Vector3f(0, 0, 0);
+		m_meshes = new Mesh[16];
+		m_materials = new Material[16];
+		m_worldMatrices = new Matrix4f[0];
+		m_lights = new Light[0];
+		Clear();
+	}
+
+	public void Clear()
+	{
+		//Drop references so meshes and materials removed from the scene can be collected
+		Arrays.fill(m_meshes, 0, m_numRenderers, null);
+		Arrays.fill(m_materials, 0, m_numRenderers, null);
+		m_numRenderers = 0;
+		m_numLights = 0;
+		m_hasCamera = false;
+	}
+
+	public void SetCamera(Matrix4f viewProjection, Vector3f eyePos)
+	{
+		m_viewProjection.Set(viewProjection);
+		m_eyePos.Set(eyePos);
+		m_hasCamera = true;
+	}
+
+	public void AddRenderer(Mesh mesh, Material material, Transform transform)
+	{
+		if(m_numRenderers == m_meshes.length)
+		{
+			m_meshes = Arrays.copyOf(m_meshes, m_meshes.length * 2);
+			m_materials = Arrays.copyOf(m_materials, m_materials.length * 2);
+		}
+
+		if(m_numRenderers == m_worldMatrices.length)
+		{
+			m_worldMatrices = Arrays.copyOf(m_worldMatrices, Math.max(16, m_worldMatrices.length * 2));
+
+			for(int i = m_numRenderers; i < m_worldMatrices.length; i++)
+				m_worldMatrices[i] = new Matrix4f();
+		}
+
+		m_meshes[m_numRenderers] = mesh;
+		m_materials[m_numRenderers] = material;
+		transform.GetTransformation(m_worldMatrices[m_numRenderers]);
+		m_numRenderers++;
+	}
+
+	//The returned entry is filled in by the caller
+	public Light AddLight()
+	{
+		if(m_numLights == m_lights.length)
+		{
+			m_lights = Arrays.copyOf(m_lights, Math.max(4, m_lights.length * 2));
+
+			for(int i = m_numLights; i < m_lights.length; i++)
+				m_lights[i] = new Light();
+		}
+
+		return m_lights[m_numLights++];
+	}
+
+	public boolean HasCamera()                   { return m_hasCamera; }
+	public Matrix4f GetViewProjection()          { return m_viewProjection; }
+	public Vector3f GetEyePos()                  { return m_eyePos; }
+	public int GetNumRenderers()                 { return m_numRenderers; }
+	public Mesh GetMesh(int index)               { return m_meshes[index]; }
+	public Material GetMaterial(int index)       { return m_materials[index]; }
+	public Matrix4f GetWorldMatrix(int index)    { return m_worldMatrices[index]; }
+	public int GetNumLights()                    { return m_numLights; }
+	public Light GetLight(int index)             { return m_lights[index]; }
+}
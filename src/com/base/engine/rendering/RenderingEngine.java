@@ -18,7 +18,12 @@ package com.base.engine.rendering;
 
 import com.base.engine.components.BaseLight;
 import com.base.engine.components.Camera;
+import com.base.engine.components.PointLight;
+import com.base.engine.core.Frustum;
 import com.base.engine.core.GameObject;
+import com.base.engine.core.Matrix4f;
+import com.base.engine.core.ScratchPool;
+import com.base.engine.core.SpatialIndex;
 import com.base.engine.core.Transform;
 import com.base.engine.core.Vector3f;
 import com.base.engine.rendering.resourceManagement.MappedValues;
@@ -38,11 +43,26 @@ public class RenderingEngine extends MappedValues
 	private Shader m_forwardAmbient;
 	private Camera m_mainCamera;
 
+	private SpatialIndex m_spatialIndex;
+	private int          m_frame;
+
+	//Camera state of the frame being rendered, interpolated m_alpha of the way between the last two ticks
+	private float        m_alpha;
+	private Matrix4f     m_viewProjection;
+	private Vector3f     m_eyePos;
+	private Frustum      m_frustum;
+
 	public RenderingEngine()
 	{
 		super();
 		m_lights = new ArrayList<BaseLight>();
 		m_samplerMap = new HashMap<String, Integer>();
+		m_spatialIndex = new SpatialIndex();
+		m_frame = 0;
+		m_alpha = 1;
+		m_viewProjection = new Matrix4f().InitIdentity();
+		m_eyePos = new Vector3f(0, 0, 0);
+		m_frustum = new Frustum();
 		m_samplerMap.put("diffuse", 0);
 		m_samplerMap.put("normalMap", 1);
 		m_samplerMap.put("dispMap", 2);
@@ -70,10 +90,25 @@ public class RenderingEngine extends MappedValues
 	}
 
 	public void Render(GameObject object)
+	{
+		Render(object, 1);
+	}
+
+	//alpha is how far between the previous and the latest tick to draw the scene, 1 being the latest tick itself
+	public void Render(GameObject object, float alpha)
 	{
 		if (GetMainCamera() == null) System.err.println("Error! Main camera not found. This is very very big bug, and game will crash.");
 		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
+		m_alpha = alpha;
+		GetMainCamera().GetViewProjection(alpha, m_viewProjection);
+		GetMainCamera().GetTransform().GetInterpolatedPos(alpha, m_eyePos);
+		m_frustum.InitFromMatrix(m_viewProjection);
+
+		m_frame++;
+		m_spatialIndex.Refresh();
+		m_spatialIndex.MarkVisible(m_frustum, m_frame);
+
 		object.RenderAll(m_forwardAmbient, this);
 
 		glEnable(GL_BLEND);
@@ -81,8 +116,14 @@ public class RenderingEngine extends MappedValues
 		glDepthMask(false);
 		glDepthFunc(GL_EQUAL);
 
-		for(BaseLight light : m_lights)
+		for(int i = 0; i < m_lights.size(); i++)
 		{
+			BaseLight light = m_lights.get(i);
+
+			//A point or spot light whose range is entirely off screen cannot light anything visible
+			if(light instanceof PointLight && ((PointLight)light).GetBoundsEntry() != null && !IsVisible(((PointLight)light).GetBoundsEntry()))
+				continue;
+
 			m_activeLight = light;
 			object.RenderAll(light.GetShader(), this);
 		}
@@ -92,6 +133,86 @@ public class RenderingEngine extends MappedValues
 		glDisable(GL_BLEND);
 	}
 
+	//Threaded rendering, simulation side: culls the scene and copies what Render(RenderSnapshot) needs into snapshot.
+	//The light list and spatial index then belong to the simulation thread; the render thread only reads snapshots.
+	public void BuildSnapshot(GameObject object, RenderSnapshot snapshot)
+	{
+		snapshot.Clear();
+
+		if(GetMainCamera() == null)
+			return;
+
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+		snapshot.SetCamera(GetMainCamera().GetViewProjection(), GetMainCamera().GetTransform().GetTransformedPos(scratch.NextVector3f()));
+		scratch.Pop();
+
+		m_frame++;
+		m_spatialIndex.Refresh();
+		m_spatialIndex.MarkVisible(GetMainCamera().GetFrustum(), m_frame);
+
+		object.SnapshotAll(snapshot, this);
+
+		for(int i = 0; i < m_lights.size(); i++)
+		{
+			BaseLight light = m_lights.get(i);
+
+			if(light instanceof PointLight && ((PointLight)light).GetBoundsEntry() != null && !IsVisible(((PointLight)light).GetBoundsEntry()))
+				continue;
+
+			light.StoreState(snapshot.AddLight());
+		}
+	}
+
+	//Threaded rendering, render side: the same passes as Render(GameObject), drawn from a snapshot
+	public void Render(RenderSnapshot snapshot)
+	{
+		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+		if(!snapshot.HasCamera())
+			return;
+
+		RenderPass(snapshot, m_forwardAmbient, null);
+
+		glEnable(GL_BLEND);
+		glBlendFunc(GL_ONE, GL_ONE);
+		glDepthMask(false);
+		glDepthFunc(GL_EQUAL);
+
+		for(int i = 0; i < snapshot.GetNumLights(); i++)
+			RenderPass(snapshot, snapshot.GetLight(i).GetShader(), snapshot.GetLight(i));
+
+		glDepthFunc(GL_LESS);
+		glDepthMask(true);
+		glDisable(GL_BLEND);
+	}
+
+	private void RenderPass(RenderSnapshot snapshot, Shader shader, RenderSnapshot.Light light)
+	{
+		shader.Bind();
+
+		for(int i = 0; i < snapshot.GetNumRenderers(); i++)
+		{
+			shader.UpdateUniforms(snapshot.GetWorldMatrix(i), snapshot.GetMaterial(i), snapshot, light, this);
+			snapshot.GetMesh(i).Draw();
+		}
+	}
+
+	//Whether the entry was inside the camera frustum in the frame being rendered
+	public boolean IsVisible(SpatialIndex.Entry entry)
+	{
+		return entry.GetVisibleFrame() == m_frame;
+	}
+
+	public float GetAlpha()                { return m_alpha; }
+	public Matrix4f GetViewProjection()    { return m_viewProjection; }
+	public Vector3f GetEyePos()            { return m_eyePos; }
+
+	public SpatialIndex GetSpatialIndex()
+	{
+		return m_spatialIndex;
+	}
+
 	public static String GetOpenGLVersion()
 	{
 		return glGetString(GL_VERSION);
@@ -102,11 +223,22 @@ public class RenderingEngine extends MappedValues
 		m_lights.add(light);
 	}
 
+	public void RemoveLight(BaseLight light)
+	{
+		m_lights.remove(light);
+	}
+
 	public void AddCamera(Camera camera)
 	{
 		m_mainCamera = camera;
 	}
 
+	public void RemoveCamera(Camera camera)
+	{
+		if(m_mainCamera == camera)
+			m_mainCamera = null;
+	}
+
 	public int GetSamplerSlot(String samplerName)
 	{
 		return m_samplerMap.get(samplerName);
@@ -29,12 +29,14 @@ import static org.lwjgl.opengl.GL32.*;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 public class Shader
 {
 	private static HashMap<String, ShaderResource> s_loadedShaders = new HashMap<String, ShaderResource>();
+	private static FloatBuffer s_matrixBuffer = Util.CreateFloatBuffer(4 * 4);
 
 	private ShaderResource m_resource;
 	private String         m_fileName;
@@ -87,8 +89,30 @@ public class Shader
 
 	public void UpdateUniforms(Transform transform, Material material, RenderingEngine renderingEngine)
 	{
-		Matrix4f worldMatrix = transform.GetTransformation();
-		Matrix4f MVPMatrix = renderingEngine.GetMainCamera().GetViewProjection().Mul(worldMatrix);
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+
+		float alpha = renderingEngine.GetAlpha();
+		Matrix4f worldMatrix = alpha >= 1 ? transform.GetTransformation(scratch.NextMatrix4f()) : transform.GetInterpolatedTransformation(alpha, scratch.NextMatrix4f());
+
+		UpdateUniforms(worldMatrix, renderingEngine.GetViewProjection(), renderingEngine.GetEyePos(), material, renderingEngine, transform, null);
+
+		scratch.Pop();
+	}
+
+	//Threaded rendering: camera and light come from the snapshot, light being the one lighting the current pass
+	public void UpdateUniforms(Matrix4f worldMatrix, Material material, RenderSnapshot snapshot, RenderSnapshot.Light light, RenderingEngine renderingEngine)
+	{
+		UpdateUniforms(worldMatrix, snapshot.GetViewProjection(), snapshot.GetEyePos(), material, renderingEngine, null, light);
+	}
+
+	private void UpdateUniforms(Matrix4f worldMatrix, Matrix4f viewProjection, Vector3f eyePos, Material material,
+	                            RenderingEngine renderingEngine, Transform transform, RenderSnapshot.Light light)
+	{
+		ScratchPool scratch = ScratchPool.Get();
+		scratch.Push();
+
+		Matrix4f MVPMatrix = Matrix4f.MulInto(viewProjection, worldMatrix, scratch.NextMatrix4f());
 
 		for(int i = 0; i < m_resource.GetUniformNames().size(); i++)
 		{
@@ -117,6 +141,12 @@ public class Shader
 					SetUniform(uniformName, renderingEngine.GetVector3f(unprefixedUniformName));
 				else if(uniformType.equals("float"))
 					SetUniformf(uniformName, renderingEngine.GetFloat(unprefixedUniformName));
+				else if(light != null && uniformType.equals("DirectionalLight"))
+					SetUniformDirectionalLight(uniformName, light);
+				else if(light != null && uniformType.equals("PointLight"))
+					SetUniformPointLight(uniformName, light);
+				else if(light != null && uniformType.equals("SpotLight"))
+					SetUniformSpotLight(uniformName, light);
 				else if(uniformType.equals("DirectionalLight"))
 					SetUniformDirectionalLight(uniformName, (DirectionalLight) renderingEngine.GetActiveLight());
 				else if(uniformType.equals("PointLight"))
@@ -129,7 +159,7 @@ public class Shader
 			else if(uniformName.startsWith("C_"))
 			{
 				if(uniformName.equals("C_eyePos"))
-					SetUniform(uniformName, renderingEngine.GetMainCamera().GetTransform().GetTransformedPos());
+					SetUniform(uniformName, eyePos);
 				else
 					throw new IllegalArgumentException(uniformName + " is not a valid component of Camera");
 			}
@@ -143,6 +173,8 @@ public class Shader
 					throw new IllegalArgumentException(uniformType + " is not a supported type in Material");
 			}
 		}
+
+		scratch.Pop();
 	}
 
 	private void AddAllAttributes(String shaderText)
@@ -416,7 +448,11 @@ public class Shader
 	
 	public void SetUniform(String uniformName, Matrix4f value)
 	{
-		glUniformMatrix4(m_resource.GetUniforms().get(uniformName), true, Util.CreateFlippedBuffer(value));
+		s_matrixBuffer.clear();
+		value.Store(s_matrixBuffer);
+		s_matrixBuffer.flip();
+
+		glUniformMatrix4(m_resource.GetUniforms().get(uniformName), true, s_matrixBuffer);
 	}
 
 	public void SetUniformBaseLight(String uniformName, BaseLight baseLight)
@@ -447,4 +483,33 @@ public class Shader
 		SetUniform(uniformName + ".direction", spotLight.GetDirection());
 		SetUniformf(uniformName + ".cutoff", spotLight.GetCutoff());
 	}
+
+	public void SetUniformBaseLight(String uniformName, RenderSnapshot.Light light)
+	{
+		SetUniform(uniformName + ".color", light.GetColor());
+		SetUniformf(uniformName + ".intensity", light.GetIntensity());
+	}
+
+	public void SetUniformDirectionalLight(String uniformName, RenderSnapshot.Light light)
+	{
+		SetUniformBaseLight(uniformName + ".base", light);
+		SetUniform(uniformName + ".direction", light.GetDirection());
+	}
+
+	public void SetUniformPointLight(String uniformName, RenderSnapshot.Light light)
+	{
+		SetUniformBaseLight(uniformName + ".base", light);
+		SetUniformf(uniformName + ".atten.constant", light.GetConstant());
+		SetUniformf(uniformName + ".atten.linear", light.GetLinear());
+		SetUniformf(uniformName + ".atten.exponent", light.GetExponent());
+		SetUniform(uniformName + ".position", light.GetPosition());
+		SetUniformf(uniformName + ".range", light.GetRange());
+	}
+
+	public void SetUniformSpotLight(String uniformName, RenderSnapshot.Light light)
+	{
+		SetUniformPointLight(uniformName + ".pointLight", light);
+		SetUniform(uniformName + ".direction", light.GetDirection());
+		SetUniformf(uniformName + ".cutoff", light.GetCutoff());
+	}
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.rendering;
+
+import com.base.engine.components.GameComponent;
+import com.base.engine.components.MeshRenderer;
+import com.base.engine.core.GameObject;
+import com.base.engine.core.Matrix4f;
+import com.base.engine.core.SceneIterator;
+import com.base.engine.core.Transform;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+//Merges the MeshRenderers of static subtrees (see GameObject.SetStatic) that share a Material into one mesh,
+//pre-transformed into the subtree root's space, so each material costs one draw per pass instead of one per piece.
+//The merged mesh is drawn by a new child of the static root; the original renderers are marked batched and skip
+//their own draws. Moving anything inside a static subtree afterwards is not reflected in the batch.
+public class StaticBatcher
+{
+	//Batches every topmost static subtree under root; returns the number of merged meshes created
+	public static int Build(GameObject root)
+	{
+		ArrayList<GameObject> staticRoots = new ArrayList<GameObject>();
+		SceneIterator iterator = new SceneIterator(root);
+
+		while(iterator.hasNext())
+		{
+			GameObject object = iterator.next();
+
+			if(object.IsStatic() && (object.GetParent() == null || !object.GetParent().IsStatic()))
+				staticRoots.add(object);
+		}
+
+		int numBatches = 0;
+
+		for(int i = 0; i < staticRoots.size(); i++)
+			numBatches += BuildSubtree(staticRoots.get(i));
+
+		return numBatches;
+	}
+
+	private static int BuildSubtree(GameObject root)
+	{
+		IdentityHashMap<GameObject, Matrix4f> toRoot = new IdentityHashMap<GameObject, Matrix4f>();
+		IdentityHashMap<Material, ArrayList<MeshRenderer>> groups = new IdentityHashMap<Material, ArrayList<MeshRenderer>>();
+		ArrayList<Material> materials = new ArrayList<Material>();
+		IdentityHashMap<MeshRenderer, Matrix4f> matrices = new IdentityHashMap<MeshRenderer, Matrix4f>();
+
+		toRoot.put(root, new Matrix4f().InitIdentity());
+
+		SceneIterator iterator = new SceneIterator(root);
+
+		while(iterator.hasNext())
+		{
+			GameObject object = iterator.next();
+			Matrix4f matrix = toRoot.get(object);
+
+			if(matrix == null)
+			{
+				Transform transform = object.GetTransform();
+				Matrix4f local = new Matrix4f().InitTRS(transform.GetPos(), transform.GetRot(), transform.GetScale());
+
+				matrix = Matrix4f.MulAffine(toRoot.get(object.GetParent()), local, local);
+				toRoot.put(object, matrix);
+			}
+
+			for(int i = 0; i < object.GetNumComponents(); i++)
+			{
+				GameComponent component = object.GetComponent(i);
+
+				if(!(component instanceof MeshRenderer))
+					continue;
+
+				MeshRenderer renderer = (MeshRenderer)component;
+
+				if(renderer.IsBatched())
+					continue;
+
+				ArrayList<MeshRenderer> group = groups.get(renderer.GetMaterial());
+
+				if(group == null)
+				{
+					group = new ArrayList<MeshRenderer>();
+					groups.put(renderer.GetMaterial(), group);
+					materials.add(renderer.GetMaterial());
+				}
+
+				group.add(renderer);
+				matrices.put(renderer, matrix);
+			}
+		}
+
+		int numBatches = 0;
+
+		for(int m = 0; m < materials.size(); m++)
+		{
+			Material material = materials.get(m);
+			ArrayList<MeshRenderer> group = groups.get(material);
+
+			//A lone renderer gains nothing from a copy of its own mesh
+			if(group.size() < 2)
+				continue;
+
+			int numFloats = 0;
+			int numIndices = 0;
+
+			for(int i = 0; i < group.size(); i++)
+			{
+				numFloats += group.get(i).GetMesh().GetVertexData().length;
+				numIndices += group.get(i).GetMesh().GetIndexData().length;
+			}
+
+			float[] vertexData = new float[numFloats];
+			int[] indexData = new int[numIndices];
+			int floatOffset = 0;
+			int indexOffset = 0;
+
+			for(int i = 0; i < group.size(); i++)
+			{
+				MeshRenderer renderer = group.get(i);
+				float[] source = renderer.GetMesh().GetVertexData();
+				int[] indices = renderer.GetMesh().GetIndexData();
+				int baseVertex = floatOffset / Vertex.SIZE;
+
+				TransformVertices(matrices.get(renderer), source, vertexData, floatOffset);
+
+				for(int j = 0; j < indices.length; j++)
+					indexData[indexOffset + j] = indices[j] + baseVertex;
+
+				floatOffset += source.length;
+				indexOffset += indices.length;
+
+				renderer.SetBatched(true);
+			}
+
+			root.AddChild(new GameObject().AddComponent(new MeshRenderer(new Mesh(vertexData, indexData), material)));
+			numBatches++;
+		}
+
+		return numBatches;
+	}
+
+	//Positions go through the full matrix, normals through its inverse transpose (the cofactor matrix, rescaled by
+	//the renormalization) and tangents through its upper 3x3
+	private static void TransformVertices(Matrix4f matrix, float[] source, float[] dest, int destOffset)
+	{
+		float m00 = matrix.Get(0, 0), m01 = matrix.Get(0, 1), m02 = matrix.Get(0, 2), m03 = matrix.Get(0, 3);
+		float m10 = matrix.Get(1, 0), m11 = matrix.Get(1, 1), m12 = matrix.Get(1, 2), m13 = matrix.Get(1, 3);
+		float m20 = matrix.Get(2, 0), m21 = matrix.Get(2, 1), m22 = matrix.Get(2, 2), m23 = matrix.Get(2, 3);
+
+		float c00 = m11 * m22 - m12 * m21, c01 = m12 * m20 - m10 * m22, c02 = m10 * m21 - m11 * m20;
+		float c10 = m02 * m21 - m01 * m22, c11 = m00 * m22 - m02 * m20, c12 = m01 * m20 - m00 * m21;
+		float c20 = m01 * m12 - m02 * m11, c21 = m02 * m10 - m00 * m12, c22 = m00 * m11 - m01 * m10;
+
+		//A mirroring transform flips the cofactor normals; keep them facing out
+		float sign = m00 * c00 + m01 * c01 + m02 * c02 < 0 ? -1 : 1;
+
+		for(int i = 0; i < source.length; i += Vertex.SIZE)
+		{
+			int o = destOffset + i;
+
+			float x = source[i], y = source[i + 1], z = source[i + 2];
+			dest[o    ] = m00 * x + m01 * y + m02 * z + m03;
+			dest[o + 1] = m10 * x + m11 * y + m12 * z + m13;
+			dest[o + 2] = m20 * x + m21 * y + m22 * z + m23;
+
+			dest[o + 3] = source[i + 3];
+			dest[o + 4] = source[i + 4];
+
+			x = source[i + 5]; y = source[i + 6]; z = source[i + 7];
+			Normalize(dest, o + 5, sign * (c00 * x + c01 * y + c02 * z), sign * (c10 * x + c11 * y + c12 * z), sign * (c20 * x + c21 * y + c22 * z));
+
+			x = source[i + 8]; y = source[i + 9]; z = source[i + 10];
+			Normalize(dest, o + 8, m00 * x + m01 * y + m02 * z, m10 * x + m11 * y + m12 * z, m20 * x + m21 * y + m22 * z);
+		}
+	}
+
+	private static void Normalize(float[] dest, int o, float x, float y, float z)
+	{
+		float length = (float)Math.sqrt(x * x + y * y + z * z);
+
+		if(length > 0)
+		{
+			x /= length;
+			y /= length;
+			z /= length;
+		}
+
+		dest[o    ] = x;
+		dest[o + 1] = y;
+		dest[o + 2] = z;
+	}
+}
@@ -52,6 +52,24 @@ public class Texture
 		}
 	}
 
+	//Uploads an image decoded ahead of time with LoadImage, or shares the resource if the file is already loaded
+	public Texture(String fileName, ImageData image)
+	{
+		this.m_fileName = fileName;
+		TextureResource oldResource = s_loadedTextures.get(fileName);
+
+		if(oldResource != null)
+		{
+			m_resource = oldResource;
+			m_resource.AddReference();
+		}
+		else
+		{
+			m_resource = CreateResource(image);
+			s_loadedTextures.put(fileName, m_resource);
+		}
+	}
+
 	@Override
 	protected void finalize()
 	{
@@ -78,7 +96,37 @@ public class Texture
 		return m_resource.GetId();
 	}
 	
+	public String GetFileName()
+	{
+		return m_fileName;
+	}
+
+	//RGBA8 pixels ready for upload
+	public static class ImageData
+	{
+		private final ByteBuffer m_pixels;
+		private final int        m_width;
+		private final int        m_height;
+
+		public ImageData(ByteBuffer pixels, int width, int height)
+		{
+			this.m_pixels = pixels;
+			this.m_width = width;
+			this.m_height = height;
+		}
+
+		public ByteBuffer GetPixels() { return m_pixels; }
+		public int GetWidth()         { return m_width; }
+		public int GetHeight()        { return m_height; }
+	}
+
 	private static TextureResource LoadTexture(String fileName)
+	{
+		return CreateResource(LoadImage(fileName));
+	}
+
+	//Reads and converts an image file without touching OpenGL, so it may run on any thread
+	public static ImageData LoadImage(String fileName)
 	{
 		try
 		{
@@ -106,18 +154,7 @@ public class Texture
 
 			buffer.flip();
 
-			TextureResource resource = new TextureResource();
-			glBindTexture(GL_TEXTURE_2D, resource.GetId());
-
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-
-			glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-			glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-
-			glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, image.getWidth(), image.getHeight(), 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
-
-			return resource;
+			return new ImageData(buffer, image.getWidth(), image.getHeight());
 		}
 		catch(Exception e)
 		{
@@ -127,4 +164,20 @@ public class Texture
 		
 		return null;
 	}
+
+	private static TextureResource CreateResource(ImageData image)
+	{
+		TextureResource resource = new TextureResource();
+		glBindTexture(GL_TEXTURE_2D, resource.GetId());
+
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+
+		glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+		glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, image.GetWidth(), image.GetHeight(), 0, GL_RGBA, GL_UNSIGNED_BYTE, image.GetPixels());
+
+		return resource;
+	}
 }
@@ -18,6 +18,7 @@ package com.base.engine.rendering.meshLoading;
 
 import com.base.engine.core.Vector2f;
 import com.base.engine.core.Vector3f;
+import com.base.engine.core.simd.BatchMath;
 
 import java.util.ArrayList;
 
@@ -40,36 +41,62 @@ public class IndexedModel
 
 	public void CalcNormals()
 	{
-		for(int i = 0; i < m_indices.size(); i += 3)
-		{
-			int i0 = m_indices.get(i);
-			int i1 = m_indices.get(i + 1);
-			int i2 = m_indices.get(i + 2);
+		int vertexCount = m_positions.size();
 
-			Vector3f v1 = m_positions.get(i1).Sub(m_positions.get(i0));
-			Vector3f v2 = m_positions.get(i2).Sub(m_positions.get(i0));
+		float[] x = new float[vertexCount];
+		float[] y = new float[vertexCount];
+		float[] z = new float[vertexCount];
+		float[] normalX = new float[vertexCount];
+		float[] normalY = new float[vertexCount];
+		float[] normalZ = new float[vertexCount];
 
-			Vector3f normal = v1.Cross(v2).Normalized();
-
-			m_normals.get(i0).Set(m_normals.get(i0).Add(normal));
-			m_normals.get(i1).Set(m_normals.get(i1).Add(normal));
-			m_normals.get(i2).Set(m_normals.get(i2).Add(normal));
+		for(int i = 0; i < vertexCount; i++)
+		{
+			x[i] = m_positions.get(i).GetX();
+			y[i] = m_positions.get(i).GetY();
+			z[i] = m_positions.get(i).GetZ();
+			normalX[i] = m_normals.get(i).GetX();
+			normalY[i] = m_normals.get(i).GetY();
+			normalZ[i] = m_normals.get(i).GetZ();
 		}
 
-		for(int i = 0; i < m_normals.size(); i++)
-			m_normals.get(i).Set(m_normals.get(i).Normalized());
+		BatchMath.VertexNormals(x, y, z, vertexCount, GetIndexArray(), m_indices.size() / 3, normalX, normalY, normalZ);
+
+		for(int i = 0; i < vertexCount; i++)
+			m_normals.get(i).Set(normalX[i], normalY[i], normalZ[i]);
 	}
 
 	public void CalcTangents()
 	{
+		int vertexCount = m_positions.size();
+
+		float[] tangentX = new float[vertexCount];
+		float[] tangentY = new float[vertexCount];
+		float[] tangentZ = new float[vertexCount];
+
+		for(int i = 0; i < vertexCount; i++)
+		{
+			tangentX[i] = m_tangents.get(i).GetX();
+			tangentY[i] = m_tangents.get(i).GetY();
+			tangentZ[i] = m_tangents.get(i).GetZ();
+		}
+
 		for(int i = 0; i < m_indices.size(); i += 3)
 		{
 			int i0 = m_indices.get(i);
 			int i1 = m_indices.get(i + 1);
 			int i2 = m_indices.get(i + 2);
 
-			Vector3f edge1 = m_positions.get(i1).Sub(m_positions.get(i0));
-			Vector3f edge2 = m_positions.get(i2).Sub(m_positions.get(i0));
+			Vector3f p0 = m_positions.get(i0);
+			Vector3f p1 = m_positions.get(i1);
+			Vector3f p2 = m_positions.get(i2);
+
+			float edge1X = p1.GetX() - p0.GetX();
+			float edge1Y = p1.GetY() - p0.GetY();
+			float edge1Z = p1.GetZ() - p0.GetZ();
+			float edge2X = p2.GetX() - p0.GetX();
+			float edge2Y = p2.GetY() - p0.GetY();
+			float edge2Z = p2.GetZ() - p0.GetZ();
 
 			float deltaU1 = m_texCoords.get(i1).GetX() - m_texCoords.get(i0).GetX();
 			float deltaV1 = m_texCoords.get(i1).GetY() - m_texCoords.get(i0).GetY();
@@ -80,18 +107,29 @@ public class IndexedModel
 			//TODO: The first 0.0f may need to be changed to 1.0f here.
 			float f = dividend == 0 ? 0.0f : 1.0f/dividend;
 
-			Vector3f tangent = new Vector3f(0,0,0);
-			tangent.SetX(f * (deltaV2 * edge1.GetX() - deltaV1 * edge2.GetX()));
-			tangent.SetY(f * (deltaV2 * edge1.GetY() - deltaV1 * edge2.GetY()));
-			tangent.SetZ(f * (deltaV2 * edge1.GetZ() - deltaV1 * edge2.GetZ()));
+			float tx = f * (deltaV2 * edge1X - deltaV1 * edge2X);
+			float ty = f * (deltaV2 * edge1Y - deltaV1 * edge2Y);
+			float tz = f * (deltaV2 * edge1Z - deltaV1 * edge2Z);
 
-			m_tangents.get(i0).Set(m_tangents.get(i0).Add(tangent));
-			m_tangents.get(i1).Set(m_tangents.get(i1).Add(tangent));
-			m_tangents.get(i2).Set(m_tangents.get(i2).Add(tangent));
+			tangentX[i0] += tx;	tangentY[i0] += ty;	tangentZ[i0] += tz;
+			tangentX[i1] += tx;	tangentY[i1] += ty;	tangentZ[i1] += tz;
+			tangentX[i2] += tx;	tangentY[i2] += ty;	tangentZ[i2] += tz;
 		}
 
-		for(int i = 0; i < m_tangents.size(); i++)
-			m_tangents.get(i).Set(m_tangents.get(i).Normalized());
+		BatchMath.NormalizeVectors(tangentX, tangentY, tangentZ, vertexCount);
+
+		for(int i = 0; i < vertexCount; i++)
+			m_tangents.get(i).Set(tangentX[i], tangentY[i], tangentZ[i]);
+	}
+
+	private int[] GetIndexArray()
+	{
+		int[] result = new int[m_indices.size()];
+
+		for(int i = 0; i < result.length; i++)
+			result[i] = m_indices.get(i);
+
+		return result;
 	}
 
 	public ArrayList<Vector3f> GetPositions() { return m_positions; }
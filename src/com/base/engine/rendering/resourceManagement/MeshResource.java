@@ -16,6 +16,12 @@
 
 package com.base.engine.rendering.resourceManagement;
 
+import com.base.engine.core.AABB;
+import com.base.engine.core.Util;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
 import static org.lwjgl.opengl.GL15.*;
 
 public class MeshResource
@@ -24,6 +30,10 @@ public class MeshResource
 	private int m_ibo;
 	private int m_size;
 	private int m_refCount;
+	private AABB m_bounds;
+	private float[] m_vertexData;
+	private int[] m_indexData;
+	private int m_numFloats;
 
 	public MeshResource(int size)
 	{
@@ -31,6 +41,7 @@ public class MeshResource
 		m_ibo = glGenBuffers();
 		this.m_size = size;
 		this.m_refCount = 1;
+		this.m_bounds = new AABB();
 	}
 
 	@Override
@@ -54,4 +65,48 @@ public class MeshResource
 	public int GetVbo()  { return m_vbo; }
 	public int GetIbo()  { return m_ibo; }
 	public int GetSize() { return m_size; }
+	public AABB GetBounds() { return m_bounds; }
+
+	//CPU-side copy of what was uploaded, kept while static batching may still read it
+	public void SetData(float[] vertexData, int[] indexData)
+	{
+		this.m_vertexData = vertexData;
+		this.m_indexData = indexData;
+		this.m_numFloats = vertexData.length;
+	}
+
+	public void ReleaseData()
+	{
+		this.m_vertexData = null;
+		this.m_indexData = null;
+	}
+
+	//Without the CPU copy these read the buffers back, so they need the GL context's thread
+	public float[] GetVertexData()
+	{
+		if(m_vertexData != null)
+			return m_vertexData;
+
+		FloatBuffer buffer = Util.CreateFloatBuffer(m_numFloats);
+		glBindBuffer(GL_ARRAY_BUFFER, m_vbo);
+		glGetBufferSubData(GL_ARRAY_BUFFER, 0, buffer);
+
+		float[] result = new float[m_numFloats];
+		buffer.get(result);
+		return result;
+	}
+
+	public int[] GetIndexData()
+	{
+		if(m_indexData != null)
+			return m_indexData;
+
+		IntBuffer buffer = Util.CreateIntBuffer(m_size);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, m_ibo);
+		glGetBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0, buffer);
+
+		int[] result = new int[m_size];
+		buffer.get(result);
+		return result;
+	}
 }
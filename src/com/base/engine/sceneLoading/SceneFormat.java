@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.sceneLoading;
+
+import com.base.engine.components.*;
+import com.base.engine.core.Matrix4f;
+import com.base.engine.rendering.Attenuation;
+
+import java.util.HashMap;
+
+//Layout of a binary scene file. Everything is big-endian.
+//
+//  int    MAGIC, int VERSION
+//  int    asset count, then per asset a KIND_* byte and its payload:
+//           KIND_MESH_FILE / KIND_TEXTURE   string file name
+//           KIND_MESH_DATA                  int n, n floats (Vertex layout), int m, m indices
+//           KIND_MATERIAL                   int diffuse, float specular intensity, float specular power,
+//                                           int normal map, int displacement map, float scale, float offset
+//                                           (ints are indices of earlier texture assets)
+//  int    object count, then per object in depth-first order:
+//           int parent index (-1 for the root), 3 floats position, 4 floats rotation, 3 floats scale,
+//           byte FLAG_* bits, short component count, then per component:
+//           short type id, int payload length, payload written by its ComponentCodec
+//
+//Strings are an int byte length followed by UTF-8. Unknown component types are skipped using the payload length.
+public class SceneFormat
+{
+	public static final int MAGIC   = 0x53434E31;
+	public static final int VERSION = 1;
+
+	public static final byte KIND_MESH_FILE = 0;
+	public static final byte KIND_MESH_DATA = 1;
+	public static final byte KIND_TEXTURE   = 2;
+	public static final byte KIND_MATERIAL  = 3;
+
+	public static final byte FLAG_STATIC = 1;
+
+	//Ids below this are reserved for engine components
+	public static final int FIRST_USER_TYPE = 1000;
+
+	private static final HashMap<Class<?>, Integer>       s_typeIds = new HashMap<Class<?>, Integer>();
+	private static final HashMap<Integer, ComponentCodec> s_codecs = new HashMap<Integer, ComponentCodec>();
+
+	static
+	{
+		Register(1, MeshRenderer.class, new MeshRendererCodec());
+		Register(2, DirectionalLight.class, new DirectionalLightCodec());
+		Register(3, PointLight.class, new PointLightCodec());
+		Register(4, SpotLight.class, new SpotLightCodec());
+		Register(5, Camera.class, new CameraCodec());
+		Register(6, FreeLook.class, new FreeLookCodec());
+		Register(7, FreeMove.class, new FreeMoveCodec());
+	}
+
+	//Types match exactly, so subclasses need their own registration. Games use ids from FIRST_USER_TYPE up.
+	public static synchronized void Register(int typeId, Class<? extends GameComponent> type, ComponentCodec codec)
+	{
+		if(s_codecs.containsKey(typeId))
+			throw new IllegalArgumentException("Component type id " + typeId + " is already registered");
+
+		s_typeIds.put(type, typeId);
+		s_codecs.put(typeId, codec);
+	}
+
+	//-1 if the type is not registered
+	public static synchronized int GetTypeId(Class<? extends GameComponent> type)
+	{
+		Integer typeId = s_typeIds.get(type);
+
+		return typeId == null ? -1 : typeId;
+	}
+
+	public static synchronized ComponentCodec GetCodec(int typeId)
+	{
+		return s_codecs.get(typeId);
+	}
+
+	private static class MeshRendererCodec implements ComponentCodec
+	{
+		public void Write(GameComponent component, SceneWriter writer)
+		{
+			MeshRenderer renderer = (MeshRenderer)component;
+
+			writer.WriteMesh(renderer.GetMesh());
+			writer.WriteMaterial(renderer.GetMaterial());
+		}
+
+		public GameComponent Read(SceneReader reader)
+		{
+			return new MeshRenderer(reader.ReadMesh(), reader.ReadMaterial());
+		}
+	}
+
+	private static class DirectionalLightCodec implements ComponentCodec
+	{
+		public void Write(GameComponent component, SceneWriter writer)
+		{
+			DirectionalLight light = (DirectionalLight)component;
+
+			writer.WriteVector3f(light.GetColor());
+			writer.WriteFloat(light.GetIntensity());
+		}
+
+		public GameComponent Read(SceneReader reader)
+		{
+			return new DirectionalLight(reader.ReadVector3f(), reader.ReadFloat());
+		}
+	}
+
+	private static class PointLightCodec implements ComponentCodec
+	{
+		public void Write(GameComponent component, SceneWriter writer)
+		{
+			PointLight light = (PointLight)component;
+
+			writer.WriteVector3f(light.GetColor());
+			writer.WriteFloat(light.GetIntensity());
+			writer.WriteVector3f(light.GetAttenuation());
+			writer.WriteFloat(light.GetRange());
+		}
+
+		public GameComponent Read(SceneReader reader)
+		{
+			PointLight light = new PointLight(reader.ReadVector3f(), reader.ReadFloat(), ReadAttenuation(reader));
+			light.SetRange(reader.ReadFloat());
+
+			return light;
+		}
+	}
+
+	private static class SpotLightCodec implements ComponentCodec
+	{
+		public void Write(GameComponent component, SceneWriter writer)
+		{
+			SpotLight light = (SpotLight)component;
+
+			writer.WriteVector3f(light.GetColor());
+			writer.WriteFloat(light.GetIntensity());
+			writer.WriteVector3f(light.GetAttenuation());
+			writer.WriteFloat(light.GetRange());
+			writer.WriteFloat(light.GetCutoff());
+		}
+
+		public GameComponent Read(SceneReader reader)
+		{
+			SpotLight light = new SpotLight(reader.ReadVector3f(), reader.ReadFloat(), ReadAttenuation(reader), 0);
+			light.SetRange(reader.ReadFloat());
+			light.SetCutoff(reader.ReadFloat());
+
+			return light;
+		}
+	}
+
+	private static class CameraCodec implements ComponentCodec
+	{
+		public void Write(GameComponent component, SceneWriter writer)
+		{
+			Matrix4f projection = ((Camera)component).GetProjection();
+
+			for(int i = 0; i < 4; i++)
+				for(int j = 0; j < 4; j++)
+					writer.WriteFloat(projection.Get(i, j));
+		}
+
+		public GameComponent Read(SceneReader reader)
+		{
+			Matrix4f projection = new Matrix4f();
+
+			for(int i = 0; i < 4; i++)
+				for(int j = 0; j < 4; j++)
+					projection.Set(i, j, reader.ReadFloat());
+
+			return new Camera(projection);
+		}
+	}
+
+	private static class FreeLookCodec implements ComponentCodec
+	{
+		public void Write(GameComponent component, SceneWriter writer)
+		{
+			FreeLook freeLook = (FreeLook)component;
+
+			writer.WriteFloat(freeLook.GetSensitivity());
+			writer.WriteInt(freeLook.GetUnlockMouseKey());
+		}
+
+		public GameComponent Read(SceneReader reader)
+		{
+			return new FreeLook(reader.ReadFloat(), reader.ReadInt());
+		}
+	}
+
+	private static class FreeMoveCodec implements ComponentCodec
+	{
+		public void Write(GameComponent component, SceneWriter writer)
+		{
+			FreeMove freeMove = (FreeMove)component;
+
+			writer.WriteFloat(freeMove.GetSpeed());
+			writer.WriteInt(freeMove.GetForwardKey());
+			writer.WriteInt(freeMove.GetBackKey());
+			writer.WriteInt(freeMove.GetLeftKey());
+			writer.WriteInt(freeMove.GetRightKey());
+		}
+
+		public GameComponent Read(SceneReader reader)
+		{
+			return new FreeMove(reader.ReadFloat(), reader.ReadInt(), reader.ReadInt(), reader.ReadInt(), reader.ReadInt());
+		}
+	}
+
+	private static Attenuation ReadAttenuation(SceneReader reader)
+	{
+		float constant = reader.ReadFloat();
+		float linear = reader.ReadFloat();
+		float exponent = reader.ReadFloat();
+
+		return new Attenuation(constant, linear, exponent);
+	}
+}
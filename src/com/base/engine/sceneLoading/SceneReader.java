@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.sceneLoading;
+
+import com.base.engine.components.GameComponent;
+import com.base.engine.core.GameObject;
+import com.base.engine.core.JobSystem;
+import com.base.engine.core.Quaternion;
+import com.base.engine.core.Transform;
+import com.base.engine.core.TransformStore;
+import com.base.engine.core.Vector3f;
+import com.base.engine.rendering.Material;
+import com.base.engine.rendering.Mesh;
+import com.base.engine.rendering.Texture;
+import com.base.engine.rendering.meshLoading.IndexedModel;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+//Loads a SceneFormat file through a memory mapping. Model and image files are parsed and decoded in parallel
+//first; the OpenGL uploads and all object creation then happen on the calling thread.
+public class SceneReader
+{
+	private ByteBuffer m_buffer;
+	private Object[]   m_assets;
+
+	//A material as read, with its textures still as asset indices; they can only be resolved once every texture
+	//before it has been uploaded
+	private static class MaterialDescriptor
+	{
+		int   m_diffuse;
+		float m_specularIntensity;
+		float m_specularPower;
+		int   m_normal;
+		int   m_dispMap;
+		float m_dispMapScale;
+		float m_dispMapOffset;
+	}
+
+	private SceneReader(ByteBuffer buffer)
+	{
+		this.m_buffer = buffer;
+	}
+
+	//Returns the root of the saved subtree, not yet attached to any game
+	public static GameObject Load(String fileName)
+	{
+		MappedByteBuffer buffer = null;
+
+		try(RandomAccessFile file = new RandomAccessFile(fileName, "r"); FileChannel channel = file.getChannel())
+		{
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch(Exception e)
+		{
+			e.printStackTrace();
+			System.exit(1);
+		}
+
+		if(buffer.getInt() != SceneFormat.MAGIC || buffer.getInt() != SceneFormat.VERSION)
+		{
+			System.err.println("Error: '" + fileName + "' is not a supported scene file.");
+			new Exception().printStackTrace();
+			System.exit(1);
+		}
+
+		SceneReader reader = new SceneReader(buffer);
+		reader.ReadAssets();
+
+		return reader.ReadObjects();
+	}
+
+	private void ReadAssets()
+	{
+		int numAssets = m_buffer.getInt();
+
+		final byte[] kinds = new byte[numAssets];
+		final Object[] descriptors = new Object[numAssets];
+
+		for(int i = 0; i < numAssets; i++)
+		{
+			kinds[i] = m_buffer.get();
+
+			switch(kinds[i])
+			{
+				case SceneFormat.KIND_MESH_FILE:
+				case SceneFormat.KIND_TEXTURE:
+					descriptors[i] = ReadString();
+					break;
+				case SceneFormat.KIND_MESH_DATA:
+					float[] vertexData = new float[m_buffer.getInt()];
+					m_buffer.asFloatBuffer().get(vertexData);
+					m_buffer.position(m_buffer.position() + vertexData.length * 4);
+					int[] indexData = new int[m_buffer.getInt()];
+					m_buffer.asIntBuffer().get(indexData);
+					m_buffer.position(m_buffer.position() + indexData.length * 4);
+					descriptors[i] = new Object[] { vertexData, indexData };
+					break;
+				case SceneFormat.KIND_MATERIAL:
+					MaterialDescriptor material = new MaterialDescriptor();
+					material.m_diffuse = m_buffer.getInt();
+					material.m_specularIntensity = m_buffer.getFloat();
+					material.m_specularPower = m_buffer.getFloat();
+					material.m_normal = m_buffer.getInt();
+					material.m_dispMap = m_buffer.getInt();
+					material.m_dispMapScale = m_buffer.getFloat();
+					material.m_dispMapOffset = m_buffer.getFloat();
+					descriptors[i] = material;
+					break;
+				default:
+					throw new IllegalStateException("Unknown scene asset kind " + kinds[i]);
+			}
+		}
+
+		//File parsing and image decoding don't touch OpenGL, so every file asset is prepared at once
+		final Object[] decoded = new Object[numAssets];
+
+		JobSystem.GetDefault().ParallelFor(0, numAssets, 1, (start, end) ->
+		{
+			for(int i = start; i < end; i++)
+			{
+				if(kinds[i] == SceneFormat.KIND_MESH_FILE)
+					decoded[i] = Mesh.LoadModel((String)descriptors[i]);
+				else if(kinds[i] == SceneFormat.KIND_TEXTURE)
+					decoded[i] = Texture.LoadImage((String)descriptors[i]);
+			}
+		}).Wait();
+
+		m_assets = new Object[numAssets];
+
+		for(int i = 0; i < numAssets; i++)
+		{
+			switch(kinds[i])
+			{
+				case SceneFormat.KIND_MESH_FILE:
+					m_assets[i] = new Mesh((String)descriptors[i], (IndexedModel)decoded[i]);
+					break;
+				case SceneFormat.KIND_TEXTURE:
+					m_assets[i] = new Texture((String)descriptors[i], (Texture.ImageData)decoded[i]);
+					break;
+				case SceneFormat.KIND_MESH_DATA:
+					Object[] data = (Object[])descriptors[i];
+					m_assets[i] = new Mesh((float[])data[0], (int[])data[1]);
+					break;
+				case SceneFormat.KIND_MATERIAL:
+					MaterialDescriptor m = (MaterialDescriptor)descriptors[i];
+					m_assets[i] = new Material((Texture)m_assets[m.m_diffuse], m.m_specularIntensity, m.m_specularPower,
+					                           (Texture)m_assets[m.m_normal], (Texture)m_assets[m.m_dispMap],
+					                           m.m_dispMapScale, m.m_dispMapOffset);
+					break;
+			}
+		}
+	}
+
+	private GameObject ReadObjects()
+	{
+		int numObjects = m_buffer.getInt();
+		GameObject[] objects = new GameObject[numObjects];
+
+		TransformStore store = TransformStore.GetDefault();
+		store.Reserve(store.GetSize() + numObjects);
+
+		for(int i = 0; i < numObjects; i++)
+		{
+			int parent = m_buffer.getInt();
+			GameObject object = new GameObject();
+			Transform transform = object.GetTransform();
+
+			transform.GetPos().Set(m_buffer.getFloat(), m_buffer.getFloat(), m_buffer.getFloat());
+			transform.GetRot().Set(m_buffer.getFloat(), m_buffer.getFloat(), m_buffer.getFloat(), m_buffer.getFloat());
+			transform.GetScale().Set(m_buffer.getFloat(), m_buffer.getFloat(), m_buffer.getFloat());
+			transform.ResetInterpolation();
+
+			if((m_buffer.get() & SceneFormat.FLAG_STATIC) != 0)
+				object.SetStatic(true);
+
+			//Written as unsigned shorts
+			int numComponents = m_buffer.getShort() & 0xFFFF;
+
+			for(int c = 0; c < numComponents; c++)
+			{
+				int typeId = m_buffer.getShort() & 0xFFFF;
+				int length = m_buffer.getInt();
+				int end = m_buffer.position() + length;
+				ComponentCodec codec = SceneFormat.GetCodec(typeId);
+
+				if(codec == null)
+					System.err.println("Warning: skipping component with unregistered type id " + typeId + ".");
+				else
+					object.AddComponent(codec.Read(this));
+
+				m_buffer.position(end);
+			}
+
+			objects[i] = object;
+
+			if(parent >= 0)
+				objects[parent].AddChild(object);
+		}
+
+		return numObjects == 0 ? new GameObject() : objects[0];
+	}
+
+	public int ReadInt()
+	{
+		return m_buffer.getInt();
+	}
+
+	public float ReadFloat()
+	{
+		return m_buffer.getFloat();
+	}
+
+	public Vector3f ReadVector3f()
+	{
+		float x = m_buffer.getFloat();
+		float y = m_buffer.getFloat();
+		float z = m_buffer.getFloat();
+
+		return new Vector3f(x, y, z);
+	}
+
+	public Quaternion ReadQuaternion()
+	{
+		float x = m_buffer.getFloat();
+		float y = m_buffer.getFloat();
+		float z = m_buffer.getFloat();
+		float w = m_buffer.getFloat();
+
+		return new Quaternion(x, y, z, w);
+	}
+
+	public String ReadString()
+	{
+		byte[] bytes = new byte[m_buffer.getInt()];
+		m_buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public Mesh ReadMesh()
+	{
+		return (Mesh)m_assets[m_buffer.getInt()];
+	}
+
+	public Texture ReadTexture()
+	{
+		return (Texture)m_assets[m_buffer.getInt()];
+	}
+
+	public Material ReadMaterial()
+	{
+		return (Material)m_assets[m_buffer.getInt()];
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.base.engine.sceneLoading;
+
+import com.base.engine.components.GameComponent;
+import com.base.engine.core.GameObject;
+import com.base.engine.core.Quaternion;
+import com.base.engine.core.SceneIterator;
+import com.base.engine.core.Transform;
+import com.base.engine.core.Vector3f;
+import com.base.engine.rendering.Material;
+import com.base.engine.rendering.Mesh;
+import com.base.engine.rendering.Texture;
+
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+//Writes a GameObject subtree in the SceneFormat layout. Assets are collected while the objects are written and
+//stored ahead of them, each once. Save before the engine builds static batches; they are rebuilt on load.
+public class SceneWriter
+{
+	private ByteBuffer m_assets;
+	private ByteBuffer m_objects;
+	private int        m_numAssets;
+
+	private HashMap<String, Integer>         m_fileAssets;
+	private IdentityHashMap<Object, Integer> m_objectAssets;
+
+	private SceneWriter()
+	{
+		m_assets = ByteBuffer.allocate(4096);
+		m_objects = ByteBuffer.allocate(65536);
+		m_numAssets = 0;
+		m_fileAssets = new HashMap<String, Integer>();
+		m_objectAssets = new IdentityHashMap<Object, Integer>();
+	}
+
+	public static void Write(GameObject root, String fileName)
+	{
+		SceneWriter writer = new SceneWriter();
+		int numObjects = writer.WriteObjects(root);
+
+		ByteBuffer header = ByteBuffer.allocate(12);
+		header.putInt(SceneFormat.MAGIC);
+		header.putInt(SceneFormat.VERSION);
+		header.putInt(writer.m_numAssets);
+		header.flip();
+
+		ByteBuffer objectCount = ByteBuffer.allocate(4);
+		objectCount.putInt(numObjects);
+		objectCount.flip();
+
+		writer.m_assets.flip();
+		writer.m_objects.flip();
+
+		try(FileChannel channel = new FileOutputStream(fileName).getChannel())
+		{
+			channel.write(new ByteBuffer[] { header, writer.m_assets, objectCount, writer.m_objects });
+		}
+		catch(Exception e)
+		{
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private int WriteObjects(GameObject root)
+	{
+		IdentityHashMap<GameObject, Integer> indices = new IdentityHashMap<GameObject, Integer>();
+		SceneIterator iterator = new SceneIterator(root);
+		int numObjects = 0;
+
+		while(iterator.hasNext())
+		{
+			GameObject object = iterator.next();
+			Transform transform = object.GetTransform();
+
+			indices.put(object, numObjects);
+
+			int parent = object == root ? -1 : indices.get(object.GetParent());
+			boolean isStatic = object.IsStatic() && (object == root || !object.GetParent().IsStatic());
+
+			WriteInt(parent);
+			WriteVector3f(transform.GetPos());
+			WriteQuaternion(transform.GetRot());
+			WriteVector3f(transform.GetScale());
+			m_objects = Ensure(m_objects, 3);
+			m_objects.put(isStatic ? SceneFormat.FLAG_STATIC : 0);
+
+			int countPosition = m_objects.position();
+			int numComponents = 0;
+			m_objects.putShort((short)0);
+
+			for(int i = 0; i < object.GetNumComponents(); i++)
+			{
+				GameComponent component = object.GetComponent(i);
+				int typeId = SceneFormat.GetTypeId(component.getClass());
+
+				if(typeId < 0)
+				{
+					System.err.println("Warning: " + component.getClass().getName() + " has no registered ComponentCodec and was not saved.");
+					continue;
+				}
+
+				m_objects = Ensure(m_objects, 6);
+				m_objects.putShort((short)typeId);
+
+				int lengthPosition = m_objects.position();
+				m_objects.putInt(0);
+
+				SceneFormat.GetCodec(typeId).Write(component, this);
+
+				m_objects.putInt(lengthPosition, m_objects.position() - lengthPosition - 4);
+				numComponents++;
+			}
+
+			m_objects.putShort(countPosition, (short)numComponents);
+			numObjects++;
+		}
+
+		return numObjects;
+	}
+
+	public void WriteInt(int value)
+	{
+		m_objects = Ensure(m_objects, 4);
+		m_objects.putInt(value);
+	}
+
+	public void WriteFloat(float value)
+	{
+		m_objects = Ensure(m_objects, 4);
+		m_objects.putFloat(value);
+	}
+
+	public void WriteVector3f(Vector3f value)
+	{
+		m_objects = Ensure(m_objects, 12);
+		m_objects.putFloat(value.GetX());
+		m_objects.putFloat(value.GetY());
+		m_objects.putFloat(value.GetZ());
+	}
+
+	public void WriteQuaternion(Quaternion value)
+	{
+		m_objects = Ensure(m_objects, 16);
+		m_objects.putFloat(value.GetX());
+		m_objects.putFloat(value.GetY());
+		m_objects.putFloat(value.GetZ());
+		m_objects.putFloat(value.GetW());
+	}
+
+	public void WriteString(String value)
+	{
+		m_objects = PutString(m_objects, value);
+	}
+
+	//The following write a reference to an asset, adding the asset to the table the first time it is seen
+
+	public void WriteMesh(Mesh mesh)
+	{
+		WriteInt(AddMesh(mesh));
+	}
+
+	public void WriteTexture(Texture texture)
+	{
+		WriteInt(AddTexture(texture));
+	}
+
+	public void WriteMaterial(Material material)
+	{
+		WriteInt(AddMaterial(material));
+	}
+
+	private int AddMesh(Mesh mesh)
+	{
+		if(!mesh.GetFileName().isEmpty())
+		{
+			Integer index = m_fileAssets.get("mesh:" + mesh.GetFileName());
+
+			if(index != null)
+				return index;
+
+			m_assets = Ensure(m_assets, 1);
+			m_assets.put(SceneFormat.KIND_MESH_FILE);
+			m_assets = PutString(m_assets, mesh.GetFileName());
+			m_fileAssets.put("mesh:" + mesh.GetFileName(), m_numAssets);
+
+			return m_numAssets++;
+		}
+
+		Integer index = m_objectAssets.get(mesh);
+
+		if(index != null)
+			return index;
+
+		float[] vertexData = mesh.GetVertexData();
+		int[] indexData = mesh.GetIndexData();
+
+		m_assets = Ensure(m_assets, 9 + vertexData.length * 4 + indexData.length * 4);
+		m_assets.put(SceneFormat.KIND_MESH_DATA);
+		m_assets.putInt(vertexData.length);
+		m_assets.asFloatBuffer().put(vertexData);
+		m_assets.position(m_assets.position() + vertexData.length * 4);
+		m_assets.putInt(indexData.length);
+		m_assets.asIntBuffer().put(indexData);
+		m_assets.position(m_assets.position() + indexData.length * 4);
+		m_objectAssets.put(mesh, m_numAssets);
+
+		return m_numAssets++;
+	}
+
+	private int AddTexture(Texture texture)
+	{
+		Integer index = m_fileAssets.get("texture:" + texture.GetFileName());
+
+		if(index != null)
+			return index;
+
+		m_assets = Ensure(m_assets, 1);
+		m_assets.put(SceneFormat.KIND_TEXTURE);
+		m_assets = PutString(m_assets, texture.GetFileName());
+		m_fileAssets.put("texture:" + texture.GetFileName(), m_numAssets);
+
+		return m_numAssets++;
+	}
+
+	private int AddMaterial(Material material)
+	{
+		Integer index = m_objectAssets.get(material);
+
+		if(index != null)
+			return index;
+
+		//Textures go into the table first so the reader can resolve them by the time it reaches the material
+		int diffuse = AddTexture(material.GetTexture("diffuse"));
+		int normalMap = AddTexture(material.GetTexture("normalMap"));
+		int dispMap = AddTexture(material.GetTexture("dispMap"));
+
+		//The material stores the displacement bias; invert the constructor's bias = scale/2 * (offset - 1)
+		float dispMapScale = material.GetFloat("dispMapScale");
+		float baseBias = dispMapScale / 2.0f;
+		float dispMapOffset = baseBias == 0 ? 0 : (material.GetFloat("dispMapBias") + baseBias) / baseBias;
+
+		m_assets = Ensure(m_assets, 29);
+		m_assets.put(SceneFormat.KIND_MATERIAL);
+		m_assets.putInt(diffuse);
+		m_assets.putFloat(material.GetFloat("specularIntensity"));
+		m_assets.putFloat(material.GetFloat("specularPower"));
+		m_assets.putInt(normalMap);
+		m_assets.putInt(dispMap);
+		m_assets.putFloat(dispMapScale);
+		m_assets.putFloat(dispMapOffset);
+		m_objectAssets.put(material, m_numAssets);
+
+		return m_numAssets++;
+	}
+
+	private static ByteBuffer PutString(ByteBuffer buffer, String value)
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+		buffer = Ensure(buffer, 4 + bytes.length);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+
+		return buffer;
+	}
+
+	private static ByteBuffer Ensure(ByteBuffer buffer, int bytes)
+	{
+		if(buffer.remaining() >= bytes)
+			return buffer;
+
+		ByteBuffer result = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		result.put(buffer);
+
+		return result;
+	}
+}
@@ -19,7 +19,6 @@ package com.base.game;
 import com.base.engine.components.GameComponent;
 import com.base.engine.core.*;
 import com.base.engine.rendering.RenderingEngine;
-import com.base.engine.rendering.Shader;
 
 public class LookAtComponent extends GameComponent
 {
@@ -34,14 +33,29 @@ public class LookAtComponent extends GameComponent
 					new Vector3f(0, 1, 0));
 					//GetTransform().GetRot().GetUp());
 
-			GetTransform().SetRot(GetTransform().GetRot().NLerp(newRot, delta * 5.0f, true));
+			GetTransform().GetRot().NLerp(newRot, delta * 5.0f, true, GetTransform().GetRot());
 			//GetTransform().SetRot(GetTransform().GetRot().SLerp(newRot, delta * 5.0f, true));
 		}
 	}
 
+	//Writes only its own rotation. The camera's world position is read from the snapshot taken before the parallel
+	//pass, so it's the same whichever worker runs this and whenever the camera's own update runs.
 	@Override
-	public void Render(Shader shader, RenderingEngine renderingEngine)
+	public int GetUpdateMode()
 	{
-		this.m_renderingEngine = renderingEngine;
+		return UPDATE_PARALLEL;
+	}
+
+	//Taken here rather than from Render, which threaded rendering never calls; null when headless
+	@Override
+	public void AddToEngine(CoreEngine engine)
+	{
+		this.m_renderingEngine = engine.GetRenderingEngine();
+	}
+
+	@Override
+	public void RemoveFromEngine(CoreEngine engine)
+	{
+		this.m_renderingEngine = null;
 	}
 }
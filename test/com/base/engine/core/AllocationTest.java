@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.base.engine.core;
+
+import com.base.engine.components.Camera;
+
+import java.lang.management.ManagementFactory;
+
+//Checks that the per-frame Transform and Camera path allocates nothing once warmed up: every iteration moves the
+//camera's parent and a child, then reads back the child's world matrix and the camera's view-projection, measuring
+//the bytes the thread allocated with ThreadMXBean. Run with the engine classes and lib/* on the classpath; exits with
+//status 1 on failure.
+public class AllocationTest
+{
+	private static final int WARMUP_ITERATIONS  = 200000;
+	private static final int MEASURE_ITERATIONS = 100000;
+
+	public static void main(String[] args)
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+		if(!threads.isThreadAllocatedMemorySupported())
+		{
+			System.out.println("AllocationTest skipped: thread allocation counting is not supported by this JVM");
+			return;
+		}
+
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		TransformStore store = TransformStore.GetDefault();
+
+		GameObject rig = new GameObject();
+		GameObject child = new GameObject();
+		Camera camera = new Camera(new Matrix4f().InitPerspective((float)Math.toRadians(70), 4.0f / 3.0f, 0.01f, 1000.0f));
+
+		rig.AddChild(child);
+		rig.AddComponent(camera);
+
+		Vector3f axis = new Vector3f(0, 1, 0);
+		Vector3f step = new Vector3f(0.001f, 0, 0.002f);
+		Matrix4f world = new Matrix4f();
+		float checksum = 0;
+
+		checksum += Run(rig, child, camera, store, axis, step, world, WARMUP_ITERATIONS);
+
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+
+		checksum += Run(rig, child, camera, store, axis, step, world, MEASURE_ITERATIONS);
+
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		if(allocated != 0)
+		{
+			System.out.println("AllocationTest failed: " + allocated + " bytes allocated over " + MEASURE_ITERATIONS +
+			                   " iterations (checksum " + checksum + ")");
+			System.exit(1);
+		}
+
+		System.out.println("AllocationTest passed: 0 bytes over " + MEASURE_ITERATIONS + " iterations (checksum " + checksum + ")");
+	}
+
+	private static float Run(GameObject rig, GameObject child, Camera camera, TransformStore store, Vector3f axis, Vector3f step, Matrix4f world, int iterations)
+	{
+		float checksum = 0;
+
+		for(int i = 0; i < iterations; i++)
+		{
+			rig.GetTransform().Rotate(axis, 0.01f);
+			rig.GetTransform().GetPos().AddLocal(step);
+			child.GetTransform().Rotate(axis, -0.02f);
+
+			//What the engine does after each tick's Update
+			store.Update();
+
+			checksum += child.GetTransform().GetTransformation(world).Get(3, 0);
+			checksum += camera.GetViewProjection().Get(0, 0);
+
+			//What the engine does after each rendered frame
+			store.ClearChanges();
+		}
+
+		return checksum;
+	}
+}
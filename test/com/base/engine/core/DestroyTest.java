@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 Benny Bobaganoosh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.base.engine.core;
+
+//Checks that destroying a parent takes its whole subtree with it: plain descendants are marked destroyed and their
+//transforms released, pooled descendants go back to their pool still usable, and destroying or detaching a child
+//afterwards does nothing. Run with the engine classes and lib/* on the classpath; exits with status 1 on failure.
+public class DestroyTest
+{
+	private static int s_failures = 0;
+
+	public static void main(String[] args)
+	{
+		GameObjectPool pool = new GameObjectPool()
+		{
+			@Override
+			protected GameObject Create()
+			{
+				return new GameObject();
+			}
+		};
+
+		GameObject parent = new GameObject();
+		GameObject child = new GameObject();
+		GameObject grandchild = new GameObject();
+		GameObject pooled = pool.Acquire();
+		GameObject pooledChild = new GameObject();
+
+		parent.AddChild(child);
+		child.AddChild(grandchild);
+		child.AddChild(pooled);
+		pooled.AddChild(pooledChild);
+
+		int sizeBefore = TransformStore.GetDefault().GetSize();
+
+		parent.Destroy();
+
+		Check(parent.IsDestroyed() && child.IsDestroyed() && grandchild.IsDestroyed(), "subtree marked destroyed");
+		TransformStore.GetDefault().Update();
+		Check(TransformStore.GetDefault().GetSize() == sizeBefore - 3, "plain transforms released");
+
+		Check(!pooled.IsDestroyed() && !pooledChild.IsDestroyed(), "pooled descendant not destroyed");
+		Check(pooled.GetParent() == null && pooled.GetTransform().GetParent() == null, "pooled descendant detached");
+		Check(pool.GetNumFree() == 1, "pooled descendant returned to its pool");
+
+		//Destroying or detaching a child of a destroyed object must not touch its released transform
+		child.Destroy();
+		grandchild.Destroy();
+		child.RemoveChild(grandchild);
+		Check(grandchild.GetParent() == null, "child detached from destroyed parent");
+
+		try
+		{
+			grandchild.GetTransform().GetPos().Set(1, 2, 3);
+			Check(false, "moving a released transform throws");
+		}
+		catch(IllegalStateException e) {}
+
+		try
+		{
+			grandchild.GetTransform().SetParent(pooled.GetTransform());
+			Check(false, "attaching a released transform throws");
+		}
+		catch(IllegalStateException e) {}
+
+		GameObject reused = pool.Acquire();
+		Check(reused == pooled, "pool hands back the returned object");
+
+		reused.GetTransform().GetPos().Set(1, 2, 3);
+		TransformStore.GetDefault().Update();
+		Check(pooledChild.GetTransform().GetTransformedPos().equals(new Vector3f(1, 2, 3)), "reused subtree still moves");
+
+		if(s_failures != 0)
+		{
+			System.out.println("DestroyTest failed: " + s_failures + " checks");
+			System.exit(1);
+		}
+
+		System.out.println("DestroyTest passed");
+	}
+
+	private static void Check(boolean condition, String name)
+	{
+		if(condition)
+			return;
+
+		System.out.println("  failed: " + name);
+		s_failures++;
+	}
+}